@@ -0,0 +1,148 @@
+package asciiproject.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import asciiproject.model.Pair;
+import asciiproject.model.SearchResult;
+import asciiproject.service.TableGenerator;
+import asciiproject.service.TableService;
+import asciiproject.util.FileHandler;
+
+/*
+    JMH benchmarks for TableService: load, save, search, edit (key uniqueness + queued save),
+    mid-table add_row and row sort, over table sizes and key/value lengths.
+    Every fixture is generated from a fixed seed, so numbers can be compared across commits, and
+    every benchmark gets its own table: mutating benchmarks start each iteration from a freshly
+    loaded one, so no benchmark measures a table changed by another.
+
+    Build and run: mvn -Pbenchmark package && java -jar target/benchmarks.jar
+    Pick cases with JMH options, ex. -p cells=1000,100000 -p length=3 TableServiceBenchmark.search
+    The 10M cell case needs a few GB of heap (-jvmArgs -Xmx8g).
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TableServiceBenchmark {
+    private static final long SEED = 20240101L;
+    private static final int COLS = 100; // Cells per row; rows = cells / COLS
+
+    // A generated table file loaded into a TableService
+    @State(Scope.Thread)
+    public static class Fixture {
+        @Param({"1000", "100000", "10000000"})
+        public int cells;
+
+        @Param({"3", "8"})
+        public int length;
+
+        int rows;
+        int cols;
+        String fileName;
+        TableGenerator generator;
+        TableService service;
+        String term;
+        int next; // Operation counter, picks the row/cell of the next edit or sort
+        private PrintStream out;
+
+        // Generate the table file once per trial
+        @Setup(Level.Trial)
+        public void generate() throws IOException {
+            out = System.out;
+            System.setOut(new PrintStream(OutputStream.nullOutputStream())); // Keep service messages out of the results
+
+            cols = Math.min(COLS, cells);
+            rows = Math.max(1, cells / cols);
+            fileName = "jmh-" + cells + "-" + length + "-" + ProcessHandle.current().pid() + ".txt";
+            generator = new TableGenerator(SEED, length);
+            generator.writeTextFile(FileHandler.getFilePath(fileName), rows, cols);
+            load();
+        }
+
+        // Load a fresh service from the generated file
+        void load() {
+            if(service != null) {
+                service.close();
+            }
+            service = new TableService(fileName);
+            service.loadTableFromFile();
+            term = service.getTable().getRow(rows / 2).getCells().get(cols / 2).getKey().substring(0, Math.min(2, length));
+        }
+
+        @TearDown(Level.Trial)
+        public void delete() {
+            service.close();
+            File file = FileHandler.getFilePath(fileName);
+            file.delete();
+            System.setOut(out);
+        }
+    }
+
+    // Fixture reloaded before every iteration, for benchmarks that change the table
+    @State(Scope.Thread)
+    public static class MutableFixture extends Fixture {
+        @Setup(Level.Iteration)
+        public void reload() throws IOException {
+            // Saves of the previous iteration wrote to the file, regenerate it from the seed
+            service.close();
+            service = null;
+            new TableGenerator(SEED, length).writeTextFile(FileHandler.getFilePath(fileName), rows, cols);
+            load();
+        }
+    }
+
+    @Benchmark
+    public boolean load(Fixture fixture) {
+        return fixture.service.loadTableFromFile();
+    }
+
+    @Benchmark
+    public void save(Fixture fixture) {
+        fixture.service.saveTable();
+        fixture.service.waitForSaves(false);
+    }
+
+    @Benchmark
+    public SearchResult search(Fixture fixture) {
+        fixture.service.clearSearchCache();
+        return fixture.service.search(fixture.term);
+    }
+
+    @Benchmark
+    public void edit(MutableFixture fixture) {
+        int i = fixture.next++;
+        fixture.service.edit(i % fixture.rows, i % fixture.cols, "jmh-" + i + "-" + fixture.length, null);
+    }
+
+    @Benchmark
+    public void addRow(MutableFixture fixture) {
+        List<Pair> cells = fixture.generator.generateRow(fixture.cols);
+        fixture.service.insertRow(fixture.service.getTable().size() / 2, cells);
+    }
+
+    @Benchmark
+    public void sortRow(MutableFixture fixture) {
+        int i = fixture.next++;
+        fixture.service.sortRow(i % fixture.rows, i % 2 == 0 ? "asc" : "desc");
+    }
+}
@@ -1,19 +1,100 @@
 package asciiproject;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Scanner;
 
 import asciiproject.util.FileHandler;
+import asciiproject.service.ScriptRunner;
 import asciiproject.service.TableService;
+import asciiproject.server.TableServer;
 
 //This is main
 public class Main {
+    private static final int PAGED_WINDOW_ROWS = 10000; // Rows kept in memory with --paged
+
     public static void main(String[] args) {
         Scanner sc = new Scanner(System.in);
-        
-        String fileName = FileHandler.checkOrCreateFile(sc, args); // Get or create file
+
+        // Separate option flags from the filename argument
+        List<String> fileArgs = new ArrayList<>();
+        boolean useChangeLog = false;
+        boolean usePaging = false;
+        boolean useColumnar = false;
+        boolean useParallelSearch = false;
+        boolean useGrid = false;
+        boolean useConcurrent = false;
+        Integer serverPort = null;
+        String scriptFile = null;
+        int flushEvery = 0;
+        Long seed = null;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--server")) {
+                // Serve the table to local clients instead of the menu, on the given port or the default one
+                serverPort = i + 1 < args.length && args[i + 1].matches("\\d+") ? Integer.parseInt(args[++i]) : TableServer.DEFAULT_PORT;
+                useConcurrent = true;
+            } else if (arg.equals("--script") && i + 1 < args.length) {
+                scriptFile = args[++i]; // Run a file of commands ("-" for standard input) instead of the menu
+            } else if (arg.equals("--flush-every")) {
+                // Save every n script commands instead of only at the end
+                flushEvery = (int) parseNumber(arg, "<n>", "a number of script commands, 0 or more", i + 1 < args.length ? args[++i] : null, 0, Integer.MAX_VALUE);
+            } else if (arg.equals("--seed")) {
+                // Generate reproducible tables
+                seed = parseNumber(arg, "<seed>", "a whole number", i + 1 < args.length ? args[++i] : null, Long.MIN_VALUE, Long.MAX_VALUE);
+            } else if (arg.equals("--log")) {
+                useChangeLog = true; // Append edits to a change log instead of rewriting the file
+            } else if (arg.equals("--columnar")) {
+                useColumnar = true; // Pack cells into a shared arena to save memory
+            } else if (arg.equals("--parallel")) {
+                useParallelSearch = true; // Search rows on all cores
+            } else if (arg.equals("--concurrent")) {
+                useConcurrent = true; // Allow several threads to search and edit the table at once
+            } else if (arg.equals("--grid")) {
+                useGrid = true; // Print the table as an aligned grid
+            } else if (arg.equals("--paged")) {
+                usePaging = true; // Load .tbl tables row by row on demand
+            } else {
+                fileArgs.add(arg);
+            }
+        }
+
+        // Columnar tables are changed in place in one shared arena, so threads cannot share them
+        if (useColumnar && useConcurrent) {
+            System.out.println("--columnar cannot be combined with --concurrent or --server.");
+            System.exit(1);
+        }
+        // Paged tables replace the loaded table with their own, so the storage options above would be dropped
+        if (usePaging && (useColumnar || useConcurrent)) {
+            System.out.println("--paged cannot be combined with --columnar, --concurrent or --server.");
+            System.exit(1);
+        }
+
+        String fileName = FileHandler.checkOrCreateFile(sc, fileArgs.toArray(new String[0])); // Get or create file
         File file = FileHandler.getFilePath(fileName); // Get full file path
         TableService tableService = new TableService(fileName); // Initialize TableService with filename
+        if (useChangeLog) {
+            tableService.enableChangeLog();
+        }
+        if (useColumnar) {
+            tableService.useColumnarStorage();
+        } else if (useConcurrent) {
+            tableService.useConcurrentTable();
+        }
+        tableService.setParallelSearch(useParallelSearch);
+        tableService.setGeneratorSeed(seed);
+        tableService.setGridLayout(useGrid);
+        if (usePaging) {
+            tableService.enablePaging(PAGED_WINDOW_ROWS);
+        }
 
         if (file.length() == 0) { // Create new table if file is empty
             System.out.println("Creating new table...");
@@ -22,63 +103,175 @@ public class Main {
             tableService.loadTableFromFile(); 
         }
         
+        if (serverPort != null) {
+            serve(tableService, serverPort);
+            return;
+        }
+        if (scriptFile != null) {
+            int failed = runScript(tableService, scriptFile, flushEvery);
+            tableService.close();
+            System.exit(failed == 0 ? 0 : 1);
+        }
+
+        // Write pending changes when the process is stopped (Ctrl+C) instead of exited through the menu
+        Runtime.getRuntime().addShutdownHook(new Thread(tableService::close));
+
         tableService.printTable();
 
         boolean isRunning = true;
-        while(isRunning) {
-            System.out.print("[ search ] - Search\n" +
-                             "[ edit ] - Edit\n" +
-                             "[ add_row ] - Add Row\n" +
-                             "[ sort ] - Sort\n" +
-                             "[ print ] - Print\n" +
-                             "[ reset ] - Reset\n" +
-                             "[ x ] - Exit\n" +
-                             "Enter the function you want to do: ");
-
-            String choice = sc.nextLine().trim().toLowerCase();
-            System.out.println();
-
-            switch(choice) {
-                case "search":
-                    System.out.println("Searching...");
-                    tableService.search(sc);
-                    break;
-
-                case "edit":
-                    System.out.println("Editing...");
-                    tableService.edit(sc);
-                    break;
-
-                case "add_row":
-                    System.out.println("Adding Row...");
-                    tableService.addRow(sc);
-                    break;
-
-                case "sort":
-                    System.out.println("Sorting...");
-                    tableService.sortRow(sc);
-                    break;
-
-                case "print":
-                    System.out.println("Printing...");
-                    tableService.printTable();
-                    break;
-
-                case "reset":
-                    System.out.println("Resetting...");
-                    tableService.resetTable(sc);
-                    break;
-
-                case "x":
-                    System.out.println("Exiting...");
-                    isRunning = false;
-                    sc.close();
-                    System.exit(0);
-                    break;
-
-                default:
-                    System.out.println("Invalid Input\n");
+        try {
+            while(isRunning) {
+                System.out.print("[ search ] - Search\n" +
+                                 "[ search_all ] - Search Many Terms\n" +
+                                 "[ search_pattern ] - Search With Regex/Wildcard\n" +
+                                 "[ edit ] - Edit\n" +
+                                 "[ add_row ] - Add Row\n" +
+                                 "[ delete_row ] - Delete Row\n" +
+                                 "[ delete_cell ] - Delete Cell\n" +
+                                 "[ sort ] - Sort\n" +
+                                 "[ sort_rows ] - Sort Rows By Column\n" +
+                                 "[ print ] - Print\n" +
+                                 "[ reset ] - Reset\n" +
+                                 "[ export ] - Export (text or .tbl binary)\n" +
+                                 "[ import ] - Import (text or .tbl binary)\n" +
+                                 "[ x ] - Exit\n" +
+                                 "Enter the function you want to do: ");
+
+                String choice = sc.nextLine().trim().toLowerCase();
+                System.out.println();
+
+                switch(choice) {
+                    case "search":
+                        System.out.println("Searching...");
+                        tableService.search(sc);
+                        break;
+
+                    case "search_all":
+                        System.out.println("Searching...");
+                        tableService.searchAll(sc);
+                        break;
+
+                    case "search_pattern":
+                        System.out.println("Searching...");
+                        tableService.searchPattern(sc);
+                        break;
+
+                    case "edit":
+                        System.out.println("Editing...");
+                        tableService.edit(sc);
+                        break;
+
+                    case "add_row":
+                        System.out.println("Adding Row...");
+                        tableService.addRow(sc);
+                        break;
+
+                    case "delete_row":
+                        System.out.println("Deleting Row...");
+                        tableService.deleteRow(sc);
+                        break;
+
+                    case "delete_cell":
+                        System.out.println("Deleting Cell...");
+                        tableService.deleteCell(sc);
+                        break;
+
+                    case "sort":
+                        System.out.println("Sorting...");
+                        tableService.sortRow(sc);
+                        break;
+
+                    case "sort_rows":
+                        System.out.println("Sorting Rows...");
+                        tableService.sortTableByColumn(sc);
+                        break;
+
+                    case "print":
+                        System.out.println("Printing...");
+                        tableService.printTable(sc);
+                        break;
+
+                    case "reset":
+                        System.out.println("Resetting...");
+                        tableService.resetTable(sc);
+                        break;
+
+                    case "export":
+                        System.out.println("Exporting...");
+                        tableService.exportTable(sc);
+                        break;
+
+                    case "import":
+                        System.out.println("Importing...");
+                        tableService.importTable(sc);
+                        break;
+
+                    case "x":
+                        System.out.println("Exiting...");
+                        isRunning = false;
+                        break;
+
+                    default:
+                        System.out.println("Invalid Input\n");
+                }
             }
+        } catch (NoSuchElementException e) {
+            // Standard input ended (Ctrl+D or the end of a piped file), exit as with x
+            System.out.println("\nEnd of input, exiting...");
+        }
+
+        tableService.close(); // Fold pending changes into the file
+        sc.close();
+        System.exit(0);
+    }
+
+    // Parse the number given to an option, or print what the option expects and exit
+    private static long parseNumber(String option, String placeholder, String expected, String text, long min, long max) {
+        try {
+            if (text != null) {
+                long value = Long.parseLong(text.trim());
+                if (value >= min && value <= max) {
+                    return value;
+                }
+            }
+        } catch (NumberFormatException e) {
+            // Reported below like a value out of range
+        }
+        System.out.println(option + " needs " + expected + (text != null ? ", got '" + text + "'." : "."));
+        System.out.println("Usage: " + option + " " + placeholder);
+        System.exit(1);
+        return 0; // Not reached
+    }
+
+    // Run a command script against the table, returning the number of failed commands
+    private static int runScript(TableService tableService, String scriptFile, int flushEvery) {
+        ScriptRunner runner = new ScriptRunner(tableService, flushEvery);
+        try (BufferedReader script = scriptFile.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Paths.get(scriptFile), StandardCharsets.UTF_8)) {
+            return runner.run(script);
+        } catch (IOException e) {
+            System.out.println("Error reading script: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    // Run the table server until the process is stopped, then write pending changes
+    private static void serve(TableService tableService, int port) {
+        try {
+            TableServer server = new TableServer(tableService, port);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    server.close(); // Waits for the requests being answered, so none runs on a closed service
+                } catch (IOException e) {
+                    System.out.println("Error stopping server: " + e.getMessage());
+                }
+                tableService.close();
+            }));
+            System.out.println("Serving " + tableService.getTable().size() + " row/s on port " + server.getPort() + " (Ctrl+C to stop)");
+            server.serve();
+        } catch (IOException e) {
+            System.out.println("Error starting server: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,166 @@
+package asciiproject.benchmark;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import asciiproject.server.TableServer;
+
+/*
+    Load generator for TableServer: every client opens its own loopback connection and sends
+    requests one at a time, mostly SEARCH with a share of EDIT, timing each round trip.
+    Reports the overall throughput and the p50/p99/max latency.
+
+    Usage: java asciiproject.benchmark.LoadGenerator [--port 7070] [--clients 16] [--requests 10000] [--writes 10]
+    --requests is per client, --writes is the percentage of EDIT requests.
+*/
+public class LoadGenerator {
+    private static final long SEED = 20240101L;
+    private static final int TERM_LENGTH = 2; // Length of the random search terms
+    private static final int FIRST_CHAR = 33; // Same printable ASCII range as TableGenerator
+    private static final int CHAR_RANGE = 94;
+
+    public static void main(String[] args) throws Exception {
+        int port = TableServer.DEFAULT_PORT;
+        int clients = 16;
+        int requests = 10000;
+        int writes = 10;
+
+        // Parse arguments
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            int value = Integer.parseInt(args[i + 1]);
+            switch (args[i]) {
+                case "--port": port = value; break;
+                case "--clients": clients = value; break;
+                case "--requests": requests = value; break;
+                case "--writes": writes = value; break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        int rows = readSize(port);
+        if (rows == 0) {
+            System.out.println("The served table is empty.");
+            return;
+        }
+        System.out.printf(Locale.ROOT, "%d client/s x %d request/s, %d%% edits, %d row/s%n", clients, requests, writes, rows);
+
+        // Run the clients in parallel, each returns the latencies of its requests
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        List<Future<long[]>> results = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int c = 0; c < clients; c++) {
+            int client = c;
+            int perClient = requests;
+            int writePercent = writes;
+            int serverPort = port;
+            results.add(pool.submit(() -> runClient(serverPort, client, perClient, writePercent, rows)));
+        }
+
+        long[] latencies = new long[clients * requests];
+        int count = 0;
+        for (Future<long[]> result : results) {
+            long[] clientLatencies = result.get();
+            System.arraycopy(clientLatencies, 0, latencies, count, clientLatencies.length);
+            count += clientLatencies.length;
+        }
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+
+        Arrays.sort(latencies, 0, count);
+        System.out.printf(Locale.ROOT, "throughput %.0f req/s, p50 %.3f ms, p99 %.3f ms, max %.3f ms%n",
+                count / (elapsed / 1e9),
+                percentile(latencies, count, 0.50) / 1e6,
+                percentile(latencies, count, 0.99) / 1e6,
+                latencies[count - 1] / 1e6);
+    }
+
+    // Send the requests of one client and return the latency of each in nanoseconds
+    private static long[] runClient(int port, int client, int requests, int writes, int rows) throws IOException {
+        SplittableRandom random = new SplittableRandom(SEED + client);
+        long[] latencies = new long[requests];
+
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            socket.setTcpNoDelay(true);
+
+            for (int i = 0; i < requests; i++) {
+                String request;
+                if (random.nextInt(100) < writes) {
+                    // Keys made of client and request number never collide with other clients
+                    request = "EDIT\t" + random.nextInt(rows) + "\t0\tc" + client + "_" + i + "\tv" + i;
+                } else {
+                    request = "SEARCH\t" + randomTerm(random);
+                }
+
+                long begin = System.nanoTime();
+                out.write(request);
+                out.write('\n');
+                out.flush();
+                readResponse(in);
+                latencies[i] = System.nanoTime() - begin;
+            }
+            out.write("QUIT\n");
+        }
+        return latencies;
+    }
+
+    // Ask the server for the number of rows
+    private static int readSize(int port) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+            out.write("SIZE\nQUIT\n");
+            out.flush();
+            String status = in.readLine();
+            if (!"OK\t1".equals(status)) {
+                throw new IOException("Unexpected response to SIZE: " + status);
+            }
+            return Integer.parseInt(in.readLine());
+        }
+    }
+
+    // Read a response status line and skip its payload lines
+    private static void readResponse(BufferedReader in) throws IOException {
+        String status = in.readLine();
+        if (status == null) {
+            throw new IOException("Server closed the connection");
+        }
+        if (status.startsWith("ERR")) {
+            return;
+        }
+        int lines = Integer.parseInt(status.substring(status.indexOf('\t') + 1));
+        for (int i = 0; i < lines; i++) {
+            in.readLine();
+        }
+    }
+
+    // Random printable ASCII search term
+    private static String randomTerm(SplittableRandom random) {
+        char[] term = new char[TERM_LENGTH];
+        for (int i = 0; i < TERM_LENGTH; i++) {
+            term[i] = (char) (FIRST_CHAR + random.nextInt(CHAR_RANGE));
+        }
+        return new String(term);
+    }
+
+    // Value at quantile q of the first count sorted values
+    private static long percentile(long[] sorted, int count, double q) {
+        return sorted[Math.min(count - 1, (int) Math.ceil(q * count) - 1)];
+    }
+}
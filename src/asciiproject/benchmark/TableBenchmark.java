@@ -0,0 +1,154 @@
+package asciiproject.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+import asciiproject.service.TableGenerator;
+import asciiproject.service.TableService;
+import asciiproject.util.FileHandler;
+
+/*
+    Micro benchmarks for TableService: load, save (waiting for the background write), search (cold,
+    and cached with one row changed since), edit (key uniqueness + queued save), mid-table add_row
+    and row sort, over several table sizes and key/value lengths.
+    Every table is generated from a fixed seed so numbers can be compared across commits, and every
+    benchmark runs on its own freshly generated table so it never measures another one's changes.
+    This is the quick, dependency-free runner; the JMH version is benchmarks/.../TableServiceBenchmark
+    (mvn -Pbenchmark package).
+
+    Usage: java asciiproject.benchmark.TableBenchmark [cells ...] [--lengths 3,8] [--iterations 5]
+    Default cells: 1000 100000 (pass 10000000 for the large case, it needs a few GB of heap).
+    Each benchmark runs warm-up iterations first, then reports the average and best time per operation.
+*/
+public class TableBenchmark {
+    private static final long SEED = 20240101L;
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int COLS = 100; // Cells per row; rows = cells / COLS
+
+    // A benchmarked operation
+    private interface Operation {
+        void run(int iteration);
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<Integer> sizes = new ArrayList<>();
+        List<Integer> lengths = new ArrayList<>();
+        int iterations = 5;
+
+        // Parse arguments
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--lengths") && i + 1 < args.length) {
+                for (String length : args[++i].split(",")) {
+                    lengths.add(Integer.parseInt(length.trim()));
+                }
+            } else if (args[i].equals("--iterations") && i + 1 < args.length) {
+                iterations = Integer.parseInt(args[++i]);
+            } else {
+                sizes.add(Integer.parseInt(args[i]));
+            }
+        }
+        if (sizes.isEmpty()) {
+            sizes.add(1000);
+            sizes.add(100000);
+        }
+        if (lengths.isEmpty()) {
+            lengths.add(3);
+            lengths.add(8);
+        }
+
+        System.out.printf("%-12s %10s %7s %14s %14s%n", "benchmark", "cells", "length", "avg ms/op", "best ms/op");
+        for (int cells : sizes) {
+            for (int length : lengths) {
+                runAll(cells, length, iterations);
+            }
+        }
+    }
+
+    // Run every benchmark on a table of the given size and key/value length, each on its own fresh table
+    private static void runAll(int cells, int length, int iterations) throws IOException {
+        int cols = Math.min(COLS, cells);
+        int rows = Math.max(1, cells / cols);
+        String fileName = "benchmark-" + cells + "-" + length + ".txt";
+        File file = FileHandler.getFilePath(fileName);
+
+        // The search term comes from the generated table, so it is the same on every run
+        TableService probe = load(fileName, file, rows, cols, length);
+        String term = probe.getTable().getRow(rows / 2).getCells().get(cols / 2).getKey().substring(0, Math.min(2, length));
+        quietly(probe::close);
+
+        TableGenerator rowGenerator = new TableGenerator(SEED + 1, length);
+        run("load", fileName, file, rows, cols, length, iterations, service -> i -> service.loadTableFromFile());
+        run("save", fileName, file, rows, cols, length, iterations, service -> i -> {
+            service.saveTable();
+            service.waitForSaves(false);
+        });
+        run("search", fileName, file, rows, cols, length, iterations, service -> i -> {
+            service.clearSearchCache();
+            service.search(term);
+        });
+        run("search_cached", fileName, file, rows, cols, length, iterations, service -> i -> {
+            service.getTable().rowModified(i % rows); // One changed row for the cache to search again
+            service.search(term);
+        });
+        run("edit", fileName, file, rows, cols, length, iterations, service -> i -> service.edit(i % rows, i % cols, "bench-" + i + "-" + length, null));
+        run("add_row", fileName, file, rows, cols, length, iterations, service -> i -> service.insertRow(service.getTable().size() / 2, rowGenerator.generateRow(cols)));
+        run("sort_row", fileName, file, rows, cols, length, iterations, service -> i -> service.sortRow(i % rows, i % 2 == 0 ? "asc" : "desc"));
+
+        file.delete();
+    }
+
+    // Measure one benchmark on a freshly generated and loaded table, so no benchmark sees the changes of another
+    private static void run(String name, String fileName, File file, int rows, int cols, int length, int iterations,
+            Function<TableService, Operation> benchmark) throws IOException {
+        TableService service = load(fileName, file, rows, cols, length);
+        measure(name, rows * cols, length, iterations, benchmark.apply(service));
+        quietly(service::close); // Finish the queued saves before the file is generated again
+    }
+
+    // Generate the table file from the seed (same seed -> same table on every run) and load it
+    private static TableService load(String fileName, File file, int rows, int cols, int length) throws IOException {
+        new TableGenerator(SEED, length).writeTextFile(file, rows, cols);
+        TableService service = new TableService(fileName);
+        quietly(service::loadTableFromFile);
+        return service;
+    }
+
+    // Warm up, then time the operation and print one result line
+    private static void measure(String name, int cells, int length, int iterations, Operation operation) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            int iteration = i;
+            quietly(() -> operation.run(iteration));
+        }
+
+        long total = 0;
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < iterations; i++) {
+            int iteration = WARMUP_ITERATIONS + i;
+            long start = System.nanoTime();
+            quietly(() -> operation.run(iteration));
+            long elapsed = System.nanoTime() - start;
+            total += elapsed;
+            best = Math.min(best, elapsed);
+        }
+
+        System.out.printf(Locale.ROOT, "%-12s %10d %7d %14.3f %14.3f%n", name, cells, length,
+                total / 1e6 / iterations, best / 1e6);
+    }
+
+    // Run an action with console output discarded, so printing is not part of the measurement
+    private static void quietly(Runnable action) {
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            action.run();
+        } finally {
+            System.setOut(out);
+        }
+    }
+}
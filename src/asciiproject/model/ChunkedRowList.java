@@ -0,0 +1,348 @@
+package asciiproject.model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/*
+    Row list stored as a sequence of blocks of at most BLOCK_SIZE rows, so inserting or removing a
+    row in the middle of the table only shifts the rows of one block instead of every row after it.
+    A Fenwick tree over the block sizes finds the block holding a row index in O(log blocks).
+    - get/set: O(log blocks)
+    - add/remove by index: O(log blocks) plus shifting at most BLOCK_SIZE references of one block.
+      When a block splits, merges or empties, the block arrays are shifted and the tree is rebuilt,
+      which is O(blocks) = O(n / BLOCK_SIZE). That takes at least BLOCK_SIZE / 4 inserts or removes
+      in the blocks involved, so it adds an amortized O(n / BLOCK_SIZE^2) per operation
+      (about 40 references at 10M rows)
+    - appending fills the last block and starts a new one when it is full, so loading a file
+      leaves every block full
+    - a full block is split in two halves; an emptied block is dropped and a block that shrinks
+      to a quarter is merged with its neighbour when both fit in half a block
+    - iteration walks the blocks in order without index lookups
+    - indexOf: O(BLOCK_SIZE + log blocks). Every row points back to the block holding it, the
+      block's position is looked up by identity and the rows before it are summed by the tree,
+      so only the row's own block is scanned. Rows moved by a split or merge are pointed at their
+      new block. A row whose back-reference is not one of this list's blocks (it was removed, or
+      added to another list since) is searched for by a full scan.
+    Not thread-safe, like ArrayList.
+*/
+public class ChunkedRowList extends AbstractList<Row> {
+    private static final int BLOCK_SIZE = 1024;
+    private static final int INITIAL_BLOCKS = 4;
+
+    private Row[][] blocks = new Row[0][];
+    private int[] sizes = new int[0]; // Rows in each block, never 0
+    private int[] tree = new int[1]; // Fenwick tree over sizes, 1-based
+    private final Map<Row[], Integer> blockIndexes = new IdentityHashMap<>(); // Position of each block in blocks
+    private int blockCount;
+    private int size;
+
+    // Get the row at index
+    @Override
+    public Row get(int index) {
+        checkIndex(index, size);
+        long position = locate(index);
+        return blocks[(int) (position >>> 32)][(int) position];
+    }
+
+    // Replace the row at index, returning the previous one
+    @Override
+    public Row set(int index, Row row) {
+        checkIndex(index, size);
+        long position = locate(index);
+        Row[] block = blocks[(int) (position >>> 32)];
+        Row previous = block[(int) position];
+        block[(int) position] = row;
+        leave(previous, block);
+        enter(row, block);
+        return previous;
+    }
+
+    // Insert a row at index, shifting the following rows of its block only
+    @Override
+    public void add(int index, Row row) {
+        checkIndex(index, size + 1);
+        int b;
+        int offset;
+        if(index == size) {
+            // Append: fill the last block, start a new one when it is full
+            if(blockCount == 0 || sizes[blockCount - 1] == BLOCK_SIZE) {
+                appendBlock();
+            }
+            b = blockCount - 1;
+            offset = sizes[b];
+        } else {
+            long position = locate(index);
+            b = (int) (position >>> 32);
+            offset = (int) position;
+            if(sizes[b] == BLOCK_SIZE) {
+                split(b);
+                if(offset > BLOCK_SIZE / 2) {
+                    b++;
+                    offset -= BLOCK_SIZE / 2;
+                }
+            }
+        }
+
+        Row[] block = blocks[b];
+        System.arraycopy(block, offset, block, offset + 1, sizes[b] - offset);
+        block[offset] = row;
+        enter(row, block);
+        sizes[b]++;
+        treeAdd(b, 1);
+        size++;
+        modCount++;
+    }
+
+    // Remove the row at index, shifting the following rows of its block only
+    @Override
+    public Row remove(int index) {
+        checkIndex(index, size);
+        long position = locate(index);
+        int b = (int) (position >>> 32);
+        int offset = (int) position;
+
+        Row[] block = blocks[b];
+        Row removed = block[offset];
+        System.arraycopy(block, offset + 1, block, offset, sizes[b] - offset - 1);
+        block[--sizes[b]] = null;
+        leave(removed, block);
+        treeAdd(b, -1);
+        size--;
+        modCount++;
+
+        if(sizes[b] == 0) {
+            removeBlock(b);
+        } else if(sizes[b] < BLOCK_SIZE / 4 && !merge(b) && b > 0) {
+            merge(b - 1);
+        }
+        return removed;
+    }
+
+    // Position of a row compared by identity, or -1; only the block the row points back to is scanned
+    @Override
+    public int indexOf(Object o) {
+        if(!(o instanceof Row)) {
+            return -1;
+        }
+        Row row = (Row) o;
+        Integer b = row.block != null ? blockIndexes.get(row.block) : null;
+        if(b == null) {
+            return super.indexOf(o);
+        }
+        Row[] block = blocks[b];
+        for(int offset = 0; offset < sizes[b]; offset++) {
+            if(block[offset] == row) {
+                return prefix(b) + offset;
+            }
+        }
+        return super.indexOf(o);
+    }
+
+    // Get number of rows
+    @Override
+    public int size() {
+        return size;
+    }
+
+    // Remove all rows
+    @Override
+    public void clear() {
+        blocks = new Row[0][];
+        sizes = new int[0];
+        tree = new int[1];
+        blockIndexes.clear();
+        blockCount = 0;
+        size = 0;
+        modCount++;
+    }
+
+    // Iterate the rows in order, block by block
+    @Override
+    public Iterator<Row> iterator() {
+        return new Iterator<Row>() {
+            private int block;
+            private int offset;
+            private int cursor; // Index of the next row
+            private int expectedModCount = modCount;
+            private boolean canRemove;
+
+            @Override
+            public boolean hasNext() {
+                return cursor < size;
+            }
+
+            @Override
+            public Row next() {
+                if(modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if(cursor >= size) {
+                    throw new NoSuchElementException();
+                }
+                while(offset == sizes[block]) {
+                    block++;
+                    offset = 0;
+                }
+                cursor++;
+                canRemove = true;
+                return blocks[block][offset++];
+            }
+
+            @Override
+            public void remove() {
+                if(!canRemove) {
+                    throw new IllegalStateException();
+                }
+                if(modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                ChunkedRowList.this.remove(--cursor);
+                expectedModCount = modCount;
+                canRemove = false;
+                // Blocks may have been dropped or merged, find the next row again
+                if(cursor < size) {
+                    long position = locate(cursor);
+                    block = (int) (position >>> 32);
+                    offset = (int) position;
+                }
+            }
+        };
+    }
+
+    // Block of the row at index (high 32 bits) and its offset in the block (low 32 bits)
+    private long locate(int index) {
+        int b = 0;
+        int remaining = index;
+        for(int step = Integer.highestOneBit(blockCount); step > 0; step >>= 1) {
+            int next = b + step;
+            if(next <= blockCount && tree[next] <= remaining) {
+                b = next;
+                remaining -= tree[next];
+            }
+        }
+        return (long) b << 32 | remaining;
+    }
+
+    // Add delta to the size of block b in the Fenwick tree
+    private void treeAdd(int b, int delta) {
+        for(int i = b + 1; i <= blockCount; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    // Sum of the sizes of the first count blocks
+    private int prefix(int count) {
+        int sum = 0;
+        for(int i = count; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    // Add an empty block at the end; its tree node only covers earlier blocks, so it is computed in O(log blocks)
+    private void appendBlock() {
+        ensureBlockCapacity(blockCount + 1);
+        blocks[blockCount] = new Row[BLOCK_SIZE];
+        sizes[blockCount] = 0;
+        blockIndexes.put(blocks[blockCount], blockCount);
+        int node = blockCount + 1;
+        tree[node] = prefix(node - 1) - prefix(node - (node & -node));
+        blockCount++;
+    }
+
+    // Move the upper half of the full block b into a new block after it
+    private void split(int b) {
+        ensureBlockCapacity(blockCount + 1);
+        System.arraycopy(blocks, b + 1, blocks, b + 2, blockCount - b - 1);
+        System.arraycopy(sizes, b + 1, sizes, b + 2, blockCount - b - 1);
+        Row[] upper = new Row[BLOCK_SIZE];
+        int half = BLOCK_SIZE / 2;
+        System.arraycopy(blocks[b], half, upper, 0, BLOCK_SIZE - half);
+        Arrays.fill(blocks[b], half, BLOCK_SIZE, null);
+        blocks[b + 1] = upper;
+        for(int i = 0; i < BLOCK_SIZE - half; i++) {
+            enter(upper[i], upper);
+        }
+        sizes[b] = half;
+        sizes[b + 1] = BLOCK_SIZE - half;
+        blockCount++;
+        rebuildTree();
+    }
+
+    // Merge block b + 1 into block b if both fit in half a block; returns whether they were merged
+    private boolean merge(int b) {
+        if(b + 1 >= blockCount || sizes[b] + sizes[b + 1] > BLOCK_SIZE / 2) {
+            return false;
+        }
+        System.arraycopy(blocks[b + 1], 0, blocks[b], sizes[b], sizes[b + 1]);
+        for(int i = 0; i < sizes[b + 1]; i++) {
+            enter(blocks[b][sizes[b] + i], blocks[b]);
+        }
+        sizes[b] += sizes[b + 1];
+        sizes[b + 1] = 0;
+        removeBlock(b + 1);
+        return true;
+    }
+
+    // Drop block b
+    private void removeBlock(int b) {
+        blockIndexes.remove(blocks[b]);
+        System.arraycopy(blocks, b + 1, blocks, b, blockCount - b - 1);
+        System.arraycopy(sizes, b + 1, sizes, b, blockCount - b - 1);
+        blockCount--;
+        blocks[blockCount] = null;
+        rebuildTree();
+    }
+
+    // Point a row stored in the block back at it
+    private static void enter(Row row, Row[] block) {
+        if(row != null) {
+            row.block = block;
+        }
+    }
+
+    // Clear the back-reference of a row leaving the block, unless it already points elsewhere
+    private static void leave(Row row, Row[] block) {
+        if(row != null && row.block == block) {
+            row.block = null;
+        }
+    }
+
+    // Build the Fenwick tree from the block sizes and renumber the blocks in O(blocks)
+    private void rebuildTree() {
+        for(int i = 0; i < blockCount; i++) {
+            blockIndexes.put(blocks[i], i);
+        }
+        Arrays.fill(tree, 0);
+        for(int i = 1; i <= blockCount; i++) {
+            tree[i] += sizes[i - 1];
+            int parent = i + (i & -i);
+            if(parent <= blockCount) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+
+    // Grow the block arrays to hold at least count blocks
+    private void ensureBlockCapacity(int count) {
+        if(count <= blocks.length) {
+            return;
+        }
+        int capacity = Math.max(count, Math.max(INITIAL_BLOCKS, blocks.length * 2));
+        blocks = Arrays.copyOf(blocks, capacity);
+        sizes = Arrays.copyOf(sizes, capacity);
+        tree = Arrays.copyOf(tree, capacity + 1);
+    }
+
+    // Check that 0 <= index < bound
+    private void checkIndex(int index, int bound) {
+        if(index < 0 || index >= bound) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+}
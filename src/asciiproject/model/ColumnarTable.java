@@ -0,0 +1,363 @@
+package asciiproject.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/*
+    Table that packs all keys and values into one shared UTF-8 byte arena instead of a Pair with
+    two Strings per cell. Each row only holds an int[] with (keyOffset, valueOffset, keyLength << 16 | valueLength)
+    per cell, and the Pairs handed out by getCells() are flyweight views over the arena.
+    Keys and values are therefore limited to 65535 bytes each.
+    Edited keys/values are appended to the arena, so the bytes they replace, and those of deleted
+    cells and rows, are dead until the arena is compacted. Once the dead bytes counted since the
+    last compaction pass half of the arena, the next change copies the cells of every row into a
+    new arena. The count is an upper bound (bytes shared by two cells count as dead when one of
+    them is replaced), so a compaction may reclaim less than counted, but it never keeps more
+    than the live bytes plus the next half an arena of edits.
+    Rows and Pairs keep the arena their offsets point into: a row removed before a compaction (ex.
+    held for an undo) or a Pair read before it still decodes from the old arena, and a removed
+    row copies its cells into the current arena when it is added back or changed.
+*/
+public class ColumnarTable extends Table {
+    private static final int INITIAL_ARENA_SIZE = 1 << 16;
+    private static final int REF_SIZE = 3; // ints per cell in a row's refs array
+    private static final int MAX_LENGTH = 0xFFFF; // Longest key or value in bytes
+
+    // Bytes of keys and values; replaced by a new arena on compaction, grown in place otherwise
+    private static class Arena {
+        byte[] bytes;
+        int used;
+
+        Arena(int capacity) {
+            this.bytes = new byte[capacity];
+        }
+    }
+
+    private Arena arena = new Arena(INITIAL_ARENA_SIZE);
+    private long deadBytes; // Bytes of replaced or removed keys and values since the last compaction, at most
+
+    // Add a row, copying its cells into the arena
+    @Override
+    public void addRow(Row row) {
+        super.addRow(toArenaRow(row));
+        compactIfWasteful();
+    }
+
+    // Insert a row at a specific index, copying its cells into the arena
+    @Override
+    public void addRowAt(int index, Row row) {
+        super.addRowAt(index, toArenaRow(row));
+        compactIfWasteful();
+    }
+
+    // Replace the row at a specific index, copying its cells into the arena
+    @Override
+    public void setRow(int index, Row row) {
+        ArenaRow stored = toArenaRow(row);
+        Row replaced = getRow(index);
+        super.setRow(index, stored);
+        if(replaced != stored) {
+            deadBytes += ((ArenaRow) replaced).byteCount();
+        }
+        compactIfWasteful();
+    }
+
+    // Remove the row at a specific index; its bytes are dead once it is removed
+    @Override
+    public Row removeRow(int index) {
+        ArenaRow removed = (ArenaRow) super.removeRow(index);
+        deadBytes += removed.byteCount();
+        compactIfWasteful();
+        return removed;
+    }
+
+    // Set the key and value of the cell at [row, col]
+    @Override
+    public void setCell(int row, int col, String key, String value) {
+        super.setCell(row, col, key, value);
+        compactIfWasteful();
+    }
+
+    // Change the cells of a row through the given update
+    @Override
+    public void updateCells(int index, Consumer<List<Pair>> update) {
+        super.updateCells(index, update);
+        compactIfWasteful();
+    }
+
+    // Clear all rows and release the arena
+    @Override
+    public void clear() {
+        super.clear();
+        arena = new Arena(INITIAL_ARENA_SIZE);
+        deadBytes = 0;
+    }
+
+    // Bytes of the arena in use, including bytes of overwritten keys and values not yet compacted
+    public long arenaSize() {
+        return arena.used;
+    }
+
+    // Copy the cells of every row into a new arena, dropping the bytes no row points to
+    public void compactArena() {
+        long live = arena.used - Math.min(deadBytes, arena.used);
+        arena = new Arena((int) Math.max(INITIAL_ARENA_SIZE, live));
+        deadBytes = 0;
+        for(Row row : getRows()) {
+            ((ArenaRow) row).moveToArena();
+        }
+    }
+
+    // Compact once more than half of the arena is dead
+    private void compactIfWasteful() {
+        if(arena.used > INITIAL_ARENA_SIZE && deadBytes > arena.used / 2) {
+            compactArena();
+        }
+    }
+
+    // Convert a row to one stored in this table's arena; a removed row of this table is taken back as is
+    private ArenaRow toArenaRow(Row row) {
+        if(row instanceof ArenaRow && ((ArenaRow) row).owner() == this) {
+            ArenaRow own = (ArenaRow) row;
+            own.moveToArena();
+            return own;
+        }
+        ArenaRow arenaRow = new ArenaRow();
+        arenaRow.encode(row.getCells());
+        return arenaRow;
+    }
+
+    // Append length bytes of source to the arena and return their offset
+    private int append(byte[] source, int from, int length) {
+        if(length > MAX_LENGTH) {
+            throw new IllegalArgumentException("Key or value longer than " + MAX_LENGTH + " bytes");
+        }
+        if(arena.used + length > arena.bytes.length) {
+            long needed = (long) arena.used + length;
+            long grown = Math.max(needed, (long) arena.bytes.length * 3 / 2);
+            if(needed > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("Cell arena is full");
+            }
+            arena.bytes = Arrays.copyOf(arena.bytes, (int) Math.min(grown, Integer.MAX_VALUE - 8));
+        }
+        int offset = arena.used;
+        System.arraycopy(source, from, arena.bytes, offset, length);
+        arena.used += length;
+        return offset;
+    }
+
+    // Row whose cells are offsets into the arena
+    private class ArenaRow extends Row {
+        private int[] refs = new int[0];
+        private int count;
+        private Arena cellArena = arena; // Arena the refs point into
+
+        ArenaRow() {
+            super(null);
+        }
+
+        ColumnarTable owner() {
+            return ColumnarTable.this;
+        }
+
+        // Get the cells as a list view over the arena (created on demand to keep rows small)
+        @Override
+        public List<Pair> getCells() {
+            return new AbstractList<Pair>() {
+                @Override
+                public Pair get(int index) {
+                    checkIndex(index);
+                    int base = index * REF_SIZE;
+                    return new ArenaPair(ArenaRow.this, index, cellArena, refs[base], refs[base + 1], refs[base + 2]);
+                }
+
+                @Override
+                public int size() {
+                    return count;
+                }
+
+                // Replace a cell; used by List.sort to write the sorted order back
+                @Override
+                public Pair set(int index, Pair pair) {
+                    Pair old = get(index);
+                    writeCell(index, pair, true);
+                    return old;
+                }
+
+                // Insert a cell, shifting the following cells right
+                @Override
+                public void add(int index, Pair pair) {
+                    if(index < 0 || index > count) {
+                        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+                    }
+                    int base = index * REF_SIZE;
+                    refs = Arrays.copyOf(refs, (count + 1) * REF_SIZE);
+                    System.arraycopy(refs, base, refs, base + REF_SIZE, (count - index) * REF_SIZE);
+                    count++;
+                    writeCell(index, pair, false);
+                }
+
+                @Override
+                public Pair remove(int index) {
+                    Pair old = get(index);
+                    int base = index * REF_SIZE;
+                    deadBytes += cellBytes(refs[base + 2]);
+                    System.arraycopy(refs, base + REF_SIZE, refs, base, (count - index - 1) * REF_SIZE);
+                    count--;
+                    return old;
+                }
+            };
+        }
+
+        @Override
+        public void setCells(ArrayList<Pair> cells) {
+            encode(cells);
+        }
+
+        // Replace all cells of the row; the old bytes count as dead unless the new cells reuse them
+        void encode(List<Pair> cells) {
+            int[] old = refs;
+            int oldCount = count;
+            moveToArena();
+            refs = new int[cells.size() * REF_SIZE];
+            count = cells.size();
+            long reused = 0;
+            for(int j = 0; j < count; j++) {
+                if(writeCell(j, cells.get(j), false)) {
+                    reused += cellBytes(refs[j * REF_SIZE + 2]);
+                }
+            }
+            long replaced = 0;
+            for(int j = 0; j < oldCount; j++) {
+                replaced += cellBytes(old[j * REF_SIZE + 2]);
+            }
+            deadBytes += Math.max(0, replaced - reused);
+        }
+
+        /*
+            Store a pair at a column, reusing its arena bytes when it already lives in this row's arena;
+            returns whether they were reused. When overwriting, the bytes of a replaced cell that
+            are not reused are counted as dead.
+        */
+        boolean writeCell(int index, Pair pair, boolean overwrite) {
+            checkIndex(index);
+            int base = index * REF_SIZE;
+            if(pair instanceof ArenaPair && ((ArenaPair) pair).row.owner() == owner()
+                    && ((ArenaPair) pair).keyArena == cellArena && ((ArenaPair) pair).valueArena == cellArena) {
+                ArenaPair p = (ArenaPair) pair;
+                refs[base] = p.keyOffset;
+                refs[base + 1] = p.valueOffset;
+                refs[base + 2] = p.lengths;
+                return true;
+            }
+            byte[] keyBytes = pair.getKey().getBytes(StandardCharsets.UTF_8);
+            byte[] valueBytes = pair.getValue().getBytes(StandardCharsets.UTF_8);
+            if(keyBytes.length > MAX_LENGTH || valueBytes.length > MAX_LENGTH) {
+                throw new IllegalArgumentException("Key or value longer than " + MAX_LENGTH + " bytes");
+            }
+            moveToArena();
+            if(overwrite) {
+                deadBytes += cellBytes(refs[base + 2]);
+            }
+            refs[base] = append(keyBytes, 0, keyBytes.length);
+            refs[base + 1] = append(valueBytes, 0, valueBytes.length);
+            refs[base + 2] = keyBytes.length << 16 | valueBytes.length;
+            return false;
+        }
+
+        // Copy the cells into the table's current arena if they point into an older one
+        void moveToArena() {
+            if(cellArena == arena) {
+                return;
+            }
+            Arena from = cellArena;
+            cellArena = arena;
+            for(int j = 0; j < count; j++) {
+                int base = j * REF_SIZE;
+                int lengths = refs[base + 2];
+                refs[base] = append(from.bytes, refs[base], lengths >>> 16);
+                refs[base + 1] = append(from.bytes, refs[base + 1], lengths & MAX_LENGTH);
+            }
+        }
+
+        // Bytes of the keys and values of the row
+        long byteCount() {
+            long bytes = 0;
+            for(int j = 0; j < count; j++) {
+                bytes += cellBytes(refs[j * REF_SIZE + 2]);
+            }
+            return bytes;
+        }
+
+        private void checkIndex(int index) {
+            if(index < 0 || index >= count) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+            }
+        }
+    }
+
+    // Bytes of a cell's key and value from its packed lengths
+    private static int cellBytes(int lengths) {
+        return (lengths >>> 16) + (lengths & MAX_LENGTH);
+    }
+
+    // Flyweight Pair over a cell of an ArenaRow; setters write through to the row
+    private class ArenaPair extends Pair {
+        private final ArenaRow row;
+        private final int col;
+        private Arena keyArena; // Arenas the offsets point into
+        private Arena valueArena;
+        private int keyOffset;
+        private int valueOffset;
+        private int lengths; // keyLength << 16 | valueLength
+
+        ArenaPair(ArenaRow row, int col, Arena cellArena, int keyOffset, int valueOffset, int lengths) {
+            super(null, null);
+            this.row = row;
+            this.col = col;
+            this.keyArena = cellArena;
+            this.valueArena = cellArena;
+            this.keyOffset = keyOffset;
+            this.valueOffset = valueOffset;
+            this.lengths = lengths;
+        }
+
+        @Override
+        public String getKey() {
+            return new String(keyArena.bytes, keyOffset, lengths >>> 16, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String getValue() {
+            return new String(valueArena.bytes, valueOffset, lengths & MAX_LENGTH, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void setKey(String key) {
+            byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+            row.moveToArena();
+            deadBytes += lengths >>> 16;
+            keyArena = arena;
+            keyOffset = append(bytes, 0, bytes.length);
+            lengths = bytes.length << 16 | (lengths & MAX_LENGTH);
+            row.refs[col * REF_SIZE] = keyOffset;
+            row.refs[col * REF_SIZE + 2] = (row.refs[col * REF_SIZE + 2] & MAX_LENGTH) | bytes.length << 16;
+        }
+
+        @Override
+        public void setValue(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            row.moveToArena();
+            deadBytes += lengths & MAX_LENGTH;
+            valueArena = arena;
+            valueOffset = append(bytes, 0, bytes.length);
+            lengths = (lengths & ~MAX_LENGTH) | bytes.length;
+            row.refs[col * REF_SIZE + 1] = valueOffset;
+            row.refs[col * REF_SIZE + 2] = (row.refs[col * REF_SIZE + 2] & ~MAX_LENGTH) | bytes.length;
+        }
+    }
+}
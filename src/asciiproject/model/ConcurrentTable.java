@@ -0,0 +1,255 @@
+package asciiproject.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/*
+    Table that can be searched and edited by several threads at once.
+    - Readers never block: rows are looked up with StampedLock optimistic reads, and every row
+      publishes its cells as an immutable snapshot, so a reader sees a row before or after an edit,
+      never halfway through one.
+    - Cell writers copy the row's cells, change the copy and publish it. Writers to the same row
+      (or to rows sharing one of STRIPES locks) are serialized, writers to other rows are not.
+    - Inserting, replacing and removing rows takes the write lock of the row list.
+    Cells handed out by getCells() must not be changed in place; use setCell or updateCells.
+    rowLock(row) lets a caller hold a row's writers off across several steps.
+*/
+public class ConcurrentTable extends Table {
+    private static final int STRIPES = 64; // Power of two
+
+    private final List<Row> rows = new ChunkedRowList();
+    private final StampedLock rowsLock = new StampedLock(); // Guards the structure of rows
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+
+    // Constructor: initializes an empty table
+    public ConcurrentTable() {
+        for(int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    // Snapshot of the rows at the time of the call
+    @Override
+    public List<Row> getRows() {
+        long stamp = rowsLock.readLock();
+        try {
+            return Collections.unmodifiableList(new ArrayList<>(rows));
+        } finally {
+            rowsLock.unlockRead(stamp);
+        }
+    }
+
+    // Get a specific row without locking unless a writer is changing the row list
+    @Override
+    public Row getRow(int index) {
+        long stamp = rowsLock.tryOptimisticRead();
+        if(stamp != 0) {
+            try {
+                Row row = rows.get(index);
+                if(rowsLock.validate(stamp)) {
+                    return row;
+                }
+            } catch (RuntimeException e) {
+                // Read raced with a structural change (the blocks of rows may be half moved), or the index really is out of bounds
+                if(rowsLock.validate(stamp)) {
+                    throw e;
+                }
+            }
+        }
+
+        stamp = rowsLock.readLock();
+        try {
+            return rows.get(index);
+        } finally {
+            rowsLock.unlockRead(stamp);
+        }
+    }
+
+    // Get the position of a row object (compared by identity), or -1, without copying the row list
+    @Override
+    public int indexOf(Row row) {
+        long stamp = rowsLock.readLock();
+        try {
+            return rows.indexOf(row);
+        } finally {
+            rowsLock.unlockRead(stamp);
+        }
+    }
+
+    // Add a row, copying its cells
+    @Override
+    public void addRow(Row row) {
+        Row stored = toConcurrentRow(row);
+        long stamp = rowsLock.writeLock();
+        try {
+            rows.add(stored);
+            rowInserted(rows.size() - 1);
+        } finally {
+            rowsLock.unlockWrite(stamp);
+        }
+    }
+
+    // Replace the row at a specific index, copying its cells
+    @Override
+    public void setRow(int index, Row row) {
+        Row stored = toConcurrentRow(row);
+        long stamp = rowsLock.writeLock();
+        try {
+            rows.set(index, stored);
+            rowChanged(index);
+        } finally {
+            rowsLock.unlockWrite(stamp);
+        }
+    }
+
+    // Insert a row at a specific index, copying its cells
+    @Override
+    public void addRowAt(int index, Row row) {
+        Row stored = toConcurrentRow(row);
+        long stamp = rowsLock.writeLock();
+        try {
+            rows.add(index, stored);
+            rowInserted(index);
+        } finally {
+            rowsLock.unlockWrite(stamp);
+        }
+    }
+
+    // Remove the row at a specific index
+    @Override
+    public Row removeRow(int index) {
+        long stamp = rowsLock.writeLock();
+        try {
+            Row removed = rows.remove(index);
+            rowRemoved(index);
+            return removed;
+        } finally {
+            rowsLock.unlockWrite(stamp);
+        }
+    }
+
+    // Get number of rows
+    @Override
+    public int size() {
+        long stamp = rowsLock.tryOptimisticRead();
+        int size = rows.size();
+        if(rowsLock.validate(stamp)) {
+            return size;
+        }
+
+        stamp = rowsLock.readLock();
+        try {
+            return rows.size();
+        } finally {
+            rowsLock.unlockRead(stamp);
+        }
+    }
+
+    // Clear all rows
+    @Override
+    public void clear() {
+        long stamp = rowsLock.writeLock();
+        try {
+            rows.clear();
+            cleared();
+        } finally {
+            rowsLock.unlockWrite(stamp);
+        }
+    }
+
+    // Check if table is empty
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    // Publish a copy of the row's cells with [row, col] replaced
+    @Override
+    public void setCell(int row, int col, String key, String value) {
+        updateCells(row, cells -> cells.set(col, new Pair(key, value)));
+    }
+
+    // Apply the update to a copy of the row's cells under the row's stripe lock, then publish the copy
+    @Override
+    public void updateCells(int index, Consumer<List<Pair>> update) {
+        ConcurrentRow row = (ConcurrentRow) getRow(index);
+        ReentrantLock stripe = stripeOf(row);
+        stripe.lock();
+        try {
+            List<Pair> cells = new ArrayList<>(row.getCells());
+            update.accept(cells);
+            row.publish(cells);
+        } finally {
+            stripe.unlock();
+        }
+        rowModified(index);
+    }
+
+    /*
+        Lock serializing the writers of a row, for callers that read a row's cells and change them as
+        one step (ex. keeping an index in step with the row). It is reentrant, so setCell and
+        updateCells can be called while holding it; it is shared with the rows of the same stripe.
+    */
+    public ReentrantLock rowLock(Row row) {
+        return stripeOf(row);
+    }
+
+    // Stripe lock of a row, chosen by identity so it does not change when rows are inserted before it
+    private ReentrantLock stripeOf(Row row) {
+        return stripes[System.identityHashCode(row) & (STRIPES - 1)];
+    }
+
+    // Convert a row to one owned by this table
+    private ConcurrentRow toConcurrentRow(Row row) {
+        if(row instanceof ConcurrentRow && ((ConcurrentRow) row).owner() == this) {
+            return (ConcurrentRow) row;
+        }
+        List<Pair> cells = new ArrayList<>(row.getCells().size());
+        for(Pair cell : row.getCells()) {
+            cells.add(new Pair(cell.getKey(), cell.getValue()));
+        }
+        ConcurrentRow concurrentRow = new ConcurrentRow();
+        concurrentRow.publish(cells);
+        return concurrentRow;
+    }
+
+    // Row whose cells are replaced as a whole instead of changed in place
+    private class ConcurrentRow extends Row {
+        private volatile List<Pair> cells;
+
+        ConcurrentRow() {
+            super(null);
+        }
+
+        // Current snapshot of the cells
+        @Override
+        public List<Pair> getCells() {
+            return cells;
+        }
+
+        // Replace the cells under the row's stripe lock
+        @Override
+        public void setCells(ArrayList<Pair> cells) {
+            ReentrantLock stripe = stripeOf(this);
+            stripe.lock();
+            try {
+                publish(new ArrayList<>(cells));
+            } finally {
+                stripe.unlock();
+            }
+        }
+
+        // Make a new list of cells visible to readers; the list must not be changed afterwards
+        void publish(List<Pair> newCells) {
+            cells = Collections.unmodifiableList(newCells);
+        }
+
+        ConcurrentTable owner() {
+            return ConcurrentTable.this;
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package asciiproject.model;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import asciiproject.util.BinaryTableFile;
+
+/*
+    Table backed by a binary .tbl file that decodes rows on demand.
+    Only a bounded LRU window of decoded rows is kept in memory; other rows are read from the file
+    through its row offset index when needed. Rows that are added or modified are pinned in memory
+    so their changes are not lost when they leave the window, until save() writes them to the file.
+    Every access goes through one lock, so rows can be read from several threads (searches, the
+    background saver) while the window reorders and evicts; reads of the file are serialized.
+*/
+public class PagedTable extends Table implements Closeable {
+    // Where a row lives: in the file at [offset, offset + length), or pinned in memory
+    private static class RowRef {
+        final long offset;
+        final int length;
+        Row pinned;
+
+        RowRef(long offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+
+        RowRef(Row pinned) {
+            this(-1, 0);
+            this.pinned = pinned;
+        }
+    }
+
+    private final File file;
+    private final int windowSize;
+    private BinaryTableFile.Reader reader; // Reopened after every save
+    private final List<RowRef> refs; // One entry per row, in table order
+    private final Map<RowRef, Row> window; // LRU window of rows decoded from the file
+    private final ReentrantLock lock = new ReentrantLock(); // Guards reader, refs, window and pins
+    private final List<Row> rowsView = new AbstractList<Row>() {
+        @Override
+        public Row get(int index) {
+            return getRow(index);
+        }
+
+        @Override
+        public int size() {
+            return PagedTable.this.size();
+        }
+
+        @Override
+        public void add(int index, Row row) {
+            addRowAt(index, row);
+        }
+
+        @Override
+        public Row set(int index, Row row) {
+            Row old = getRow(index);
+            setRow(index, row);
+            return old;
+        }
+    };
+
+    // Open a binary table file keeping at most windowSize decoded rows in memory
+    public PagedTable(File file, int windowSize) throws IOException {
+        this.file = file;
+        this.windowSize = windowSize;
+        this.reader = BinaryTableFile.open(file);
+        this.refs = new ArrayList<>(reader.size());
+        for(int i = 0; i < reader.size(); i++) {
+            refs.add(fileRef(i));
+        }
+
+        // Access-ordered map that drops the least recently used row once it is full
+        this.window = new LinkedHashMap<RowRef, Row>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<RowRef, Row> eldest) {
+                return size() > windowSize;
+            }
+        };
+    }
+
+    // Most decoded rows kept in memory besides the pinned ones
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    // Get all rows as a list that loads rows as they are accessed
+    @Override
+    public List<Row> getRows() {
+        return rowsView;
+    }
+
+    // Get a specific row, reading it from the file if it is not in memory
+    @Override
+    public Row getRow(int index) {
+        lock.lock();
+        try {
+            RowRef ref = refs.get(index);
+            if(ref.pinned != null) {
+                return ref.pinned;
+            }
+
+            Row row = window.get(ref);
+            if(row == null) {
+                try {
+                    row = reader.readRowAt(ref.offset, ref.length);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Error reading row " + index, e);
+                }
+                window.put(ref, row);
+            }
+            return row;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Add a row (kept in memory)
+    @Override
+    public void addRow(Row row) {
+        lock.lock();
+        try {
+            refs.add(new RowRef(row));
+            rowInserted(refs.size() - 1);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Replace the row at a specific index (kept in memory)
+    @Override
+    public void setRow(int index, Row row) {
+        lock.lock();
+        try {
+            refs.set(index, new RowRef(row));
+            rowChanged(index);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Insert a row at a specific index (kept in memory)
+    @Override
+    public void addRowAt(int index, Row row) {
+        lock.lock();
+        try {
+            refs.add(index, new RowRef(row));
+            rowInserted(index);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Remove the row at a specific index, reading it from the file if it is not in memory
+    @Override
+    public Row removeRow(int index) {
+        lock.lock();
+        try {
+            Row row = getRow(index);
+            window.remove(refs.remove(index));
+            rowRemoved(index);
+            return row;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Get number of rows
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return refs.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Clear all rows
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            refs.clear();
+            window.clear();
+            cleared();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Check if table is empty
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /*
+        Put the rows in a new order, row i taking the row now at positions[i].
+        Only the row references move: rows in the file stay there and are not pinned, so reordering
+        keeps no more rows in memory than the window.
+    */
+    public void reorder(int[] positions) {
+        lock.lock();
+        try {
+            if(positions.length != refs.size()) {
+                throw new IllegalArgumentException("Expected " + refs.size() + " positions, got " + positions.length);
+            }
+            List<RowRef> reordered = new ArrayList<>(refs.size());
+            for(int position : positions) {
+                reordered.add(refs.get(position));
+            }
+            for(int i = 0; i < reordered.size(); i++) {
+                refs.set(i, reordered.get(i));
+                rowChanged(i);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Edit a cell and pin its row; the row cannot leave the window between the change and the pin
+    @Override
+    public void setCell(int row, int col, String key, String value) {
+        lock.lock();
+        try {
+            super.setCell(row, col, key, value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Change the cells of a row and pin it
+    @Override
+    public void updateCells(int index, Consumer<List<Pair>> update) {
+        lock.lock();
+        try {
+            super.updateCells(index, update);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Pin a changed row in memory so its changes survive leaving the window
+    @Override
+    public void rowModified(int index) {
+        lock.lock();
+        try {
+            RowRef ref = refs.get(index);
+            if(ref.pinned == null) {
+                ref.pinned = getRow(index);
+                window.remove(ref);
+            }
+            super.rowModified(index);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+        Write every row to the backing file, replacing it atomically, and page from the new file:
+        pinned rows are written out and released, and the window starts empty.
+        With force the file is flushed to the disk before this returns.
+    */
+    public void save(boolean force) throws IOException {
+        lock.lock();
+        try {
+            BinaryTableFile.write(file, rowsView, force);
+            BinaryTableFile.Reader written = BinaryTableFile.open(file);
+            reader.close();
+            reader = written;
+            window.clear();
+            for(int i = 0; i < refs.size(); i++) {
+                refs.set(i, fileRef(i));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Close the backing file
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            reader.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Reference to row i of the current file
+    private RowRef fileRef(int i) {
+        return new RowRef(reader.offsetOf(i), (int) (reader.offsetOf(i + 1) - reader.offsetOf(i)));
+    }
+}
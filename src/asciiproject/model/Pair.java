@@ -30,6 +30,6 @@ public class Pair {
 
     @Override
     public String toString() {
-        return "(" + key + " , " + value + ")"; // Format as (key , value)
+        return "(" + getKey() + " , " + getValue() + ")"; // Format as (key , value)
     }
 }
\ No newline at end of file
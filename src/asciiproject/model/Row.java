@@ -6,6 +6,8 @@ import java.util.List;
 public class Row {
     // List of Pair objects as cells in the row
     private List<Pair> cells;
+    // Block of the ChunkedRowList holding the row, so the list finds its position without a scan
+    Row[] block;
 
     // Constructor: initializes an empty row
     public Row(List<Pair> cells) {
@@ -25,7 +27,7 @@ public class Row {
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
-        for(Pair p : cells) {
+        for(Pair p : getCells()) {
             // Append the string of the Pair followed by a space
             sb.append(p.toString()).append(" "); // format as (key1 , value1) (key2 , value2) and so on
         }
@@ -0,0 +1,66 @@
+package asciiproject.model;
+
+import java.util.Collections;
+import java.util.List;
+
+// Cells where a search term was found, in [row, col] order
+public class SearchResult {
+    // Occurrences of the term in one cell
+    public static class Hit {
+        private final int row;
+        private final int col;
+        private final int keyCount;
+        private final int valueCount;
+
+        public Hit(int row, int col, int keyCount, int valueCount) {
+            this.row = row;
+            this.col = col;
+            this.keyCount = keyCount;
+            this.valueCount = valueCount;
+        }
+
+        public int getRow() {
+            return row;
+        }
+
+        public int getCol() {
+            return col;
+        }
+
+        public int getKeyCount() {
+            return keyCount;
+        }
+
+        public int getValueCount() {
+            return valueCount;
+        }
+    }
+
+    private final String term;
+    private final List<Hit> hits;
+
+    // Constructor
+    public SearchResult(String term, List<Hit> hits) {
+        this.term = term;
+        this.hits = Collections.unmodifiableList(hits);
+    }
+
+    // Getters
+    public String getTerm() {
+        return term;
+    }
+
+    public List<Hit> getHits() {
+        return hits;
+    }
+
+    // Check if the term was found anywhere
+    public boolean isEmpty() {
+        return hits.isEmpty();
+    }
+
+    // Number of cells the term was found in
+    public int size() {
+        return hits.size();
+    }
+}
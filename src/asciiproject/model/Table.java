@@ -2,14 +2,47 @@ package asciiproject.model;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class Table {
+    private static final int JOURNAL_SIZE = 1024; // Row changes remembered for changesSince
+
+    // Kind of a recorded row change
+    public enum ChangeKind { MODIFIED, INSERTED, REMOVED }
+
+    // A row change and the version it produced
+    public static class Change {
+        private final ChangeKind kind;
+        private final int row;
+
+        public Change(ChangeKind kind, int row) {
+            this.kind = kind;
+            this.row = row;
+        }
+
+        public ChangeKind getKind() {
+            return kind;
+        }
+
+        public int getRow() {
+            return row;
+        }
+    }
+
     // List of Row objects in the table
     private List<Row> rows;
 
-    // Constructor: initializes an empty table
+    // Modification version, bumped by every change, plus a ring of the latest row changes
+    private volatile long version;
+    private long clearedVersion; // Version produced by the last clear(), older changes are not recorded
+    private final ChangeKind[] journalKinds = new ChangeKind[JOURNAL_SIZE];
+    private final int[] journalRows = new int[JOURNAL_SIZE];
+    private int journalCount; // Changes in the ring, at most JOURNAL_SIZE
+    private final Object journalLock = new Object();
+
+    // Constructor: initializes an empty table, rows are kept in blocks so inserts in the middle stay cheap
     public Table() {
-        this.rows = new ArrayList<>();
+        this.rows = new ChunkedRowList();
     }
 
     // Constructor with existing rows
@@ -27,14 +60,34 @@ public class Table {
         return rows.get(index);
     }
 
+    // Get the position of a row object (compared by identity), or -1; no cell is read, and the default row list finds it without a scan
+    public int indexOf(Row row) {
+        return getRows().indexOf(row);
+    }
+
     // Add a row
     public void addRow(Row row) {
         rows.add(row);
+        rowInserted(rows.size() - 1);
+    }
+
+    // Replace the row at a specific index
+    public void setRow(int index, Row row) {
+        rows.set(index, row);
+        rowChanged(index);
     }
 
     // Insert a row at a specific index
     public void addRowAt(int index, Row row) {
         rows.add(index, row);
+        rowInserted(index);
+    }
+
+    // Remove the row at a specific index and return it
+    public Row removeRow(int index) {
+        Row removed = rows.remove(index);
+        rowRemoved(index);
+        return removed;
     }
 
     // Get number of rows
@@ -45,6 +98,7 @@ public class Table {
     // Clear all rows
     public void clear() {
         rows.clear();
+        cleared();
     }
 
     // Check if table is empty
@@ -52,10 +106,90 @@ public class Table {
         return rows.isEmpty();
     }
 
+    // Set the key and value of the cell at [row, col]
+    public void setCell(int row, int col, String key, String value) {
+        Pair cell = getRow(row).getCells().get(col);
+        cell.setKey(key);
+        cell.setValue(value);
+        rowModified(row);
+    }
+
+    // Change the cells of a row (ex. reorder them) through the given update
+    public void updateCells(int index, Consumer<List<Pair>> update) {
+        update.accept(getRow(index).getCells());
+        rowModified(index);
+    }
+
+    // Called after the cells of a row were changed in place (edited or sorted)
+    public void rowModified(int index) {
+        // Rows are held in memory, only the change is recorded
+        rowChanged(index);
+    }
+
+    // Modification version: increases with every added, inserted, replaced, removed, edited or sorted row and every clear
+    public long getVersion() {
+        return version;
+    }
+
+    /*
+        Row changes made after the given version, oldest first, with row indexes as they were
+        at the time of each change. Returns null if they are no longer known: the table was
+        cleared since, or more than JOURNAL_SIZE changes were made.
+    */
+    public List<Change> changesSince(long since) {
+        synchronized(journalLock) {
+            long missing = version - since;
+            if(since < clearedVersion || missing > journalCount || missing < 0) {
+                return null;
+            }
+            List<Change> changes = new ArrayList<>((int) missing);
+            for(long v = since + 1; v <= version; v++) {
+                int slot = (int) ((v - 1) % JOURNAL_SIZE);
+                changes.add(new Change(journalKinds[slot], journalRows[slot]));
+            }
+            return changes;
+        }
+    }
+
+    // Record that the row at index was replaced or changed
+    protected void rowChanged(int index) {
+        record(ChangeKind.MODIFIED, index);
+    }
+
+    // Record that a row was inserted at index
+    protected void rowInserted(int index) {
+        record(ChangeKind.INSERTED, index);
+    }
+
+    // Record that the row at index was removed
+    protected void rowRemoved(int index) {
+        record(ChangeKind.REMOVED, index);
+    }
+
+    // Record that every row was removed
+    protected void cleared() {
+        synchronized(journalLock) {
+            version++;
+            clearedVersion = version;
+            journalCount = 0;
+        }
+    }
+
+    // Bump the version and remember the change in the ring
+    private void record(ChangeKind kind, int index) {
+        synchronized(journalLock) {
+            version++;
+            int slot = (int) ((version - 1) % JOURNAL_SIZE);
+            journalKinds[slot] = kind;
+            journalRows[slot] = index;
+            journalCount = Math.min(journalCount + 1, JOURNAL_SIZE);
+        }
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder("Table Contents:\n");
-        for (Row row : rows) {
+        for (Row row : getRows()) {
             sb.append(row.toString()).append("\n");
         }
         return sb.toString();
@@ -0,0 +1,239 @@
+package asciiproject.server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import asciiproject.model.Pair;
+import asciiproject.model.SearchResult;
+import asciiproject.model.Table;
+import asciiproject.service.TableService;
+
+/*
+    Serves one shared TableService to local clients over TCP with a line protocol.
+    Every request and response line is UTF-8, fields are separated by a single tab so keys and
+    values may contain spaces:
+        SEARCH  <term>                          -> OK <hits>, then per hit: row col keyCount valueCount
+        EDIT    <row> <col> <key> <value>       -> OK 0
+        ADD_ROW <index> <key> <value> ...       -> OK 0 (inserts before the row at index)
+        SORT    <row> <asc|desc>                -> OK 0
+        PRINT   <from> <to>                     -> OK <rows>, then rows [from, to) as (key , value) ...
+        SIZE                                    -> OK 1, then the number of rows
+        QUIT                                    -> closes the connection
+    Errors are answered with ERR <message>, including unexpected failures of a request, which
+    leave the connection open. Responses of pipelined requests are flushed together.
+    Each connection runs on its own virtual thread (a platform thread before Java 21).
+    close() waits for the requests being answered, so the table service can be closed after it.
+*/
+public class TableServer implements Closeable {
+    public static final int DEFAULT_PORT = 7070;
+    private static final long CLOSE_TIMEOUT_SECONDS = 30; // Longest wait for running requests on close
+
+    private final TableService tableService;
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections = newConnectionExecutor();
+    private final Set<Socket> clients = ConcurrentHashMap.newKeySet(); // Open connections, closed by close()
+
+    // Listen on the loopback interface; port 0 picks a free port
+    public TableServer(TableService tableService, int port) throws IOException {
+        this.tableService = tableService;
+        this.serverSocket = new ServerSocket(port, 128, InetAddress.getLoopbackAddress());
+    }
+
+    // Port the server is listening on
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    // Accept connections until the server is closed
+    public void serve() {
+        while(!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                clients.add(socket);
+                try {
+                    connections.execute(() -> handle(socket));
+                } catch (RejectedExecutionException e) {
+                    // The server is closing
+                    clients.remove(socket);
+                    socket.close();
+                }
+            } catch (IOException e) {
+                if(!serverSocket.isClosed()) {
+                    System.out.println("Error accepting connection: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /*
+        Stop accepting connections, close the open ones and wait for the requests being answered.
+        Closing a socket ends its handler's read; a request already running finishes first.
+    */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        connections.shutdown();
+        for(Socket socket : clients) {
+            socket.close();
+        }
+        try {
+            if(!connections.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                connections.shutdownNow();
+                throw new IOException("Requests still running after " + CLOSE_TIMEOUT_SECONDS + " seconds");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for requests to finish");
+        }
+    }
+
+    // Answer the requests of one client until it disconnects
+    private void handle(Socket socket) {
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8), 1 << 16)) {
+            String line;
+            while((line = in.readLine()) != null) {
+                if(line.equals("QUIT")) {
+                    break;
+                }
+                respond(line, out);
+
+                // Flush once the client has no more pipelined requests waiting
+                if(!in.ready()) {
+                    out.flush();
+                }
+            }
+            out.flush();
+        } catch (IOException e) {
+            // Client went away, nothing to answer
+        } finally {
+            clients.remove(socket);
+        }
+    }
+
+    // Run one request and write its response
+    private void respond(String line, Writer out) throws IOException {
+        String[] fields = line.split("\t", -1);
+        try {
+            switch(fields[0]) {
+                case "SEARCH":
+                    expectFields(fields, 2);
+                    writeSearchResult(tableService.search(fields[1]), out);
+                    break;
+
+                case "EDIT":
+                    expectFields(fields, 5);
+                    tableService.edit(parseInt(fields[1]), parseInt(fields[2]), fields[3], fields[4]);
+                    out.write("OK\t0\n");
+                    break;
+
+                case "ADD_ROW":
+                    if(fields.length < 4 || fields.length % 2 != 0) {
+                        throw new IllegalArgumentException("Expected <index> followed by key/value pairs");
+                    }
+                    List<Pair> cells = new ArrayList<>();
+                    for(int i = 2; i < fields.length; i += 2) {
+                        cells.add(new Pair(fields[i], fields[i + 1]));
+                    }
+                    tableService.insertRow(parseInt(fields[1]), cells);
+                    out.write("OK\t0\n");
+                    break;
+
+                case "SORT":
+                    expectFields(fields, 3);
+                    tableService.sortRow(parseInt(fields[1]), fields[2]);
+                    out.write("OK\t0\n");
+                    break;
+
+                case "PRINT":
+                    expectFields(fields, 3);
+                    writeRows(parseInt(fields[1]), parseInt(fields[2]), out);
+                    break;
+
+                case "SIZE":
+                    out.write("OK\t1\n" + tableService.getTable().size() + "\n");
+                    break;
+
+                default:
+                    throw new IllegalArgumentException("Unknown command: " + fields[0]);
+            }
+        } catch (RuntimeException e) {
+            // Bad requests throw IllegalArgumentException; anything else is answered too, so the client is not left waiting
+            String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            out.write("ERR\t" + message.replace('\n', ' ') + "\n");
+        }
+    }
+
+    // OK <hits> followed by one line per hit
+    private void writeSearchResult(SearchResult result, Writer out) throws IOException {
+        out.write("OK\t" + result.size() + "\n");
+        for(SearchResult.Hit hit : result.getHits()) {
+            out.write(hit.getRow() + "\t" + hit.getCol() + "\t" + hit.getKeyCount() + "\t" + hit.getValueCount() + "\n");
+        }
+    }
+
+    // OK <rows> followed by the rows [from, to) in the text table format
+    private void writeRows(int from, int to, Writer out) throws IOException {
+        Table table = tableService.getTable();
+        if(from < 0 || from > to || to > table.size()) {
+            throw new IllegalArgumentException("Row range " + from + "-" + to + " is out of bounds");
+        }
+        out.write("OK\t" + (to - from) + "\n");
+        for(int i = from; i < to; i++) {
+            out.write(table.getRow(i).toString());
+            out.write('\n');
+        }
+    }
+
+    // Check the number of fields of a request
+    private static void expectFields(String[] fields, int count) {
+        if(fields.length != count) {
+            throw new IllegalArgumentException(fields[0] + " expects " + (count - 1) + " argument/s");
+        }
+    }
+
+    // Parse a number field of a request
+    private static int parseInt(String field) {
+        try {
+            return Integer.parseInt(field);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number: " + field);
+        }
+    }
+
+    /*
+        One virtual thread per connection when the runtime has them (Java 21+), looked up
+        reflectively so the project still builds and runs on Java 17 with a cached thread pool.
+    */
+    private static ExecutorService newConnectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "table-client");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
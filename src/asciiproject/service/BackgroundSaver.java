@@ -0,0 +1,185 @@
+package asciiproject.service;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+    Writes the table file on a background thread, so the thread that changed the table returns
+    as soon as the change is made.
+    - request() asks for a write of the table as it is when the write starts. The writer waits
+      delayMillis for the rest of a burst, and every request made before it starts is covered by
+      that one write of the latest state.
+    - await(force) waits until every write requested so far is done; with force also until it is
+      flushed to the disk (fsync). Waiting skips the delay.
+    - close() finishes the pending writes, forces them to the disk and stops the thread.
+    A write that fails counts as done and is kept for takeFailure, so the thread that asked for it
+    reports it; the writer thread prints nothing. The next request writes the table again.
+    The state is guarded by a ReentrantLock rather than the monitor, so virtual threads waiting
+    here are not pinned to their carrier.
+*/
+public class BackgroundSaver {
+    // Writes the table file, or flushes the last written one to the disk
+    public interface SaveTask {
+        void write(boolean force) throws IOException;
+        void force() throws IOException;
+    }
+
+    private final SaveTask task;
+    private final long delayMillis;
+    private Thread thread; // Started by the first request
+    private long requested; // Requests made so far
+    private long written; // Requests covered by finished writes
+    private long forced; // Requests covered by writes flushed to the disk
+    private boolean forceRequested; // The next write (or a lone force) must reach the disk
+    private int waiters; // Threads in await, the writer skips the delay for them
+    private boolean closed;
+    private Exception failure; // Last failed write or force, until taken by takeFailure
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition(); // Signalled on every request, await and finished write
+
+    // Run the task on a background thread, gathering requests for delayMillis before each write
+    public BackgroundSaver(SaveTask task, long delayMillis) {
+        this.task = task;
+        this.delayMillis = delayMillis;
+    }
+
+    // Ask for the table to be written; returns immediately
+    public void request() {
+        lock.lock();
+        try {
+            if(closed) {
+                throw new IllegalStateException("Background saver is closed");
+            }
+            requested++;
+            if(thread == null) {
+                thread = new Thread(this::run, "table-saver");
+                thread.setDaemon(true);
+                thread.start();
+            }
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Wait until every write requested so far is done, and flushed to the disk if force is set
+    public void await(boolean force) {
+        lock.lock();
+        try {
+            long target = requested;
+            if(force && forced < target) {
+                forceRequested = true;
+            }
+            waiters++;
+            changed.signalAll();
+            try {
+                while(written < target || (force && forced < target)) {
+                    changed.await();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                waiters--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Finish and force the pending writes, then stop the writer thread
+    public void close() {
+        Thread writer;
+        lock.lock();
+        try {
+            if(closed) {
+                return;
+            }
+            closed = true;
+            forceRequested = forced < requested;
+            writer = thread;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if(writer != null) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Get and forget the last write that failed since the previous call, or null if none did
+    public Exception takeFailure() {
+        lock.lock();
+        try {
+            Exception taken = failure;
+            failure = null;
+            return taken;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Writer thread: wait for work, let a burst gather, then write once for all of it
+    private void run() {
+        while(true) {
+            long target;
+            boolean force;
+            lock.lock();
+            try {
+                while(!hasWork()) {
+                    if(closed) {
+                        return;
+                    }
+                    changed.await();
+                }
+                long deadline = System.currentTimeMillis() + delayMillis;
+                long remaining;
+                while(!closed && waiters == 0 && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                    changed.await(remaining, TimeUnit.MILLISECONDS);
+                }
+                target = requested;
+                force = forceRequested;
+                forceRequested = false;
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            Exception failed = null;
+            try {
+                if(target > written) {
+                    task.write(force);
+                } else {
+                    task.force();
+                }
+            } catch (IOException | RuntimeException e) {
+                failed = e;
+            }
+
+            lock.lock();
+            try {
+                if(failed != null) {
+                    failure = failed;
+                }
+                written = target;
+                if(force) {
+                    forced = target;
+                }
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // A write is requested, or the last one must still be forced to the disk
+    private boolean hasWork() {
+        return written < requested || (forceRequested && forced < written);
+    }
+}
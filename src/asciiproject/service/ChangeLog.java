@@ -0,0 +1,448 @@
+package asciiproject.service;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import asciiproject.model.Pair;
+import asciiproject.util.FileHandler;
+
+/*
+    Append-only log of table mutations kept next to the table file (<table file>.log).
+    Every record is one line, strings are written as <length>:<text> with <length> the length of
+    the string; backslashes, newlines and carriage returns in the text are written as \\, \n and
+    \r, so a string never breaks its record's line:
+        E <row> <col> <key> <value>     cell edit
+        I <index> <count> <key> <value> ...   row insert
+        S <row> <asc|desc>               row sort
+        D <row>                          row delete
+        C <row> <col>                    cell delete
+        B <count>                        start of a batch of count records (see TableService.apply)
+        M                                commit of the open batch
+    followed by a space and the CRC32 of the record as 8 hex digits. A record counts once its line
+    ends and its checksum matches, so a line torn by a crash (ex. "D 12" cut from "D 123") is never
+    replayed: replay stops at the first bad line and cuts it and everything after it from the log.
+    The records of a batch are replayed only once its commit is read, and then as one
+    MutationBatch, so a batch cut short by a crash or failing partway on replay is dropped as a
+    whole instead of leaving the operations before the cut or the failure applied.
+    Appends are serialized by a ReentrantLock rather than the monitor, so a virtual thread
+    waiting for another thread's append is not pinned to its carrier.
+*/
+public class ChangeLog {
+    private final File file;
+    private BufferedWriter writer;
+    private int records; // Records appended since the log was last cleared
+    private final ReentrantLock lock = new ReentrantLock(); // Guards the writer and records
+
+    // Receives the records of the log when it is replayed
+    public interface Replayer {
+        void edit(int row, int col, String key, String value);
+        void insert(int index, List<Pair> cells);
+        void sort(int row, String order);
+        void deleteRow(int row);
+        void deleteCell(int row, int col);
+
+        // A committed batch; replayers that change a table apply it all or nothing, by default its operations are handed over one by one
+        default void batch(MutationBatch batch) {
+            batch.replayTo(this);
+        }
+    }
+
+    // Create a change log for the given table file
+    public ChangeLog(String tableFileName) {
+        this.file = FileHandler.getFilePath(tableFileName + ".log");
+    }
+
+    // Number of operations logged since the last clear (or replayed by the last replay)
+    public int size() {
+        lock.lock();
+        try {
+            return records;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Append a cell edit
+    public void appendEdit(int row, int col, String key, String value) {
+        append(1, editRecord(row, col, key, value));
+    }
+
+    // Append a row insert
+    public void appendInsert(int index, List<Pair> cells) {
+        append(1, insertRecord(index, cells));
+    }
+
+    // Append a row sort
+    public void appendSort(int row, String order) {
+        append(1, "S " + row + " " + order);
+    }
+
+    // Append a row delete
+    public void appendDeleteRow(int row) {
+        append(1, "D " + row);
+    }
+
+    // Append a cell delete
+    public void appendDeleteCell(int row, int col) {
+        append(1, "C " + row + " " + col);
+    }
+
+    // Append the operations of an applied batch between a begin and a commit record, flushed once
+    void appendBatch(List<MutationBatch.Applied> applied) {
+        String[] batch = new String[applied.size() + 2];
+        batch[0] = "B " + applied.size();
+        for(int i = 0; i < applied.size(); i++) {
+            MutationBatch.Applied a = applied.get(i);
+            switch(a.kind) {
+                case EDIT:
+                    batch[i + 1] = editRecord(a.row, a.col, a.newKey, a.newValue);
+                    break;
+                case INSERT:
+                    batch[i + 1] = insertRecord(a.row, a.cells);
+                    break;
+                case DELETE_ROW:
+                    batch[i + 1] = "D " + a.row;
+                    break;
+                case DELETE_CELL:
+                    batch[i + 1] = "C " + a.row + " " + a.col;
+                    break;
+            }
+        }
+        batch[batch.length - 1] = "M";
+        append(applied.size(), batch);
+    }
+
+    // Write records holding the given number of operations and flush them so they survive the program exiting
+    private void append(int operations, String... lines) {
+        lock.lock();
+        try {
+            if(writer == null) {
+                writer = new BufferedWriter(new FileWriter(file, StandardCharsets.UTF_8, true));
+            }
+            for(String record : lines) {
+                writer.write(record);
+                writer.write(' ');
+                writer.write(checksum(record));
+                writer.write('\n');
+            }
+            writer.flush();
+            records += operations;
+        } catch (IOException e) {
+            System.out.println("Error writing to change log: " + e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Empty the log, called once its records are part of the table file
+    public void clear() {
+        lock.lock();
+        try {
+            if(writer != null) {
+                writer.close();
+            }
+            writer = new BufferedWriter(new FileWriter(file, StandardCharsets.UTF_8, false));
+            records = 0;
+        } catch (IOException e) {
+            System.out.println("Error clearing change log: " + e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Close the log file
+    public void close() {
+        lock.lock();
+        try {
+            if(writer != null) {
+                writer.close();
+                writer = null;
+            }
+        } catch (IOException e) {
+            System.out.println("Error closing change log: " + e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+        Replay every record of the log in order, stopping at the first one that is unterminated,
+        fails its checksum or cannot be applied, or at a batch without its commit. That record or
+        batch and the rest of the file are cut off, so records appended later follow the last good one.
+    */
+    public void replay(Replayer replayer) {
+        lock.lock();
+        try {
+            replayRecords(replayer);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Replay under the lock, see replay
+    private void replayRecords(Replayer replayer) {
+        records = 0;
+        if(!file.exists()) {
+            return;
+        }
+
+        try {
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            int valid = 0; // Bytes of the replayed records and committed batches
+            int position = 0;
+            MutationBatch batch = null; // Operations of the open batch, replayed at its commit
+            int batchSize = 0;
+            while(position < bytes.length) {
+                int end = position;
+                while(end < bytes.length && bytes[end] != '\n') {
+                    end++;
+                }
+                if(end == bytes.length) {
+                    break; // The last line was not terminated, the write was cut short
+                }
+                String record = checkedRecord(new String(bytes, position, end - position, StandardCharsets.UTF_8));
+                if(record == null) {
+                    break;
+                }
+                position = end + 1;
+
+                if(batch != null) {
+                    if(!record.equals("M")) {
+                        if(!replayRecord(record, collecting(batch))) {
+                            break;
+                        }
+                        continue;
+                    }
+                    if(batch.size() != batchSize || !replayBatch(batch, replayer)) {
+                        break;
+                    }
+                    records += batch.size();
+                    batch = null;
+                } else if(record.startsWith("B ")) {
+                    batchSize = parseCount(record.substring(2));
+                    if(batchSize < 0) {
+                        break;
+                    }
+                    batch = new MutationBatch();
+                    continue;
+                } else {
+                    if(!replayRecord(record, replayer)) {
+                        break;
+                    }
+                    records++;
+                }
+                valid = position;
+            }
+
+            if(valid < bytes.length) {
+                System.out.println("Discarding " + (bytes.length - valid) + " byte/s of torn, corrupt or uncommitted change log records.");
+                try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                    channel.truncate(valid);
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Error reading change log: " + e.getMessage());
+        }
+    }
+
+    // Hand a committed batch to the replayer; false if it failed, the replayer has then applied none of it
+    private static boolean replayBatch(MutationBatch batch, Replayer replayer) {
+        try {
+            replayer.batch(batch);
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    // Replayer that adds the records of an open batch to it, batches never hold sorts
+    private static Replayer collecting(MutationBatch batch) {
+        return new Replayer() {
+            @Override
+            public void edit(int row, int col, String key, String value) {
+                batch.edit(row, col, key, value);
+            }
+
+            @Override
+            public void insert(int index, List<Pair> cells) {
+                batch.insertRow(index, cells);
+            }
+
+            @Override
+            public void sort(int row, String order) {
+                throw new IllegalArgumentException("A batch cannot sort a row");
+            }
+
+            @Override
+            public void deleteRow(int row) {
+                batch.deleteRow(row);
+            }
+
+            @Override
+            public void deleteCell(int row, int col) {
+                batch.deleteCell(row, col);
+            }
+        };
+    }
+
+    // A record count, or -1 if it is not a number
+    private static int parseCount(String text) {
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // The record of a log line if its checksum matches, otherwise null
+    private static String checkedRecord(String line) {
+        int split = line.length() - 9;
+        if(split < 1 || line.charAt(split) != ' ') {
+            return null;
+        }
+        String record = line.substring(0, split);
+        return checksum(record).equals(line.substring(split + 1)) ? record : null;
+    }
+
+    // CRC32 of a record as 8 lowercase hex digits
+    private static String checksum(String record) {
+        CRC32 crc = new CRC32();
+        crc.update(record.getBytes(StandardCharsets.UTF_8));
+        return String.format("%08x", crc.getValue());
+    }
+
+    // Decode one record and hand it to the replayer; false if it is malformed
+    private boolean replayRecord(String line, Replayer replayer) {
+        try {
+            int[] pos = {2};
+            switch(line.charAt(0)) {
+                case 'E': {
+                    int row = readInt(line, pos);
+                    int col = readInt(line, pos);
+                    String key = readString(line, pos);
+                    String value = readString(line, pos);
+                    replayer.edit(row, col, key, value);
+                    return true;
+                }
+                case 'I': {
+                    int index = readInt(line, pos);
+                    int count = readInt(line, pos);
+                    List<Pair> cells = new ArrayList<>(count);
+                    for(int i = 0; i < count; i++) {
+                        String key = readString(line, pos);
+                        String value = readString(line, pos);
+                        cells.add(new Pair(key, value));
+                    }
+                    replayer.insert(index, cells);
+                    return true;
+                }
+                case 'S': {
+                    int row = readInt(line, pos);
+                    String order = line.substring(pos[0]);
+                    if(!order.equals("asc") && !order.equals("desc")) {
+                        return false;
+                    }
+                    replayer.sort(row, order);
+                    return true;
+                }
+                case 'D': {
+                    int row = Integer.parseInt(line.substring(pos[0]));
+                    replayer.deleteRow(row);
+                    return true;
+                }
+                case 'C': {
+                    int row = readInt(line, pos);
+                    int col = Integer.parseInt(line.substring(pos[0]));
+                    replayer.deleteCell(row, col);
+                    return true;
+                }
+                default:
+                    return false;
+            }
+        } catch (RuntimeException e) {
+            // Truncated or garbled record
+            return false;
+        }
+    }
+
+    // Record of a cell edit
+    private static String editRecord(int row, int col, String key, String value) {
+        StringBuilder sb = new StringBuilder("E ").append(row).append(' ').append(col).append(' ');
+        appendString(sb, key).append(' ');
+        appendString(sb, value);
+        return sb.toString();
+    }
+
+    // Record of a row insert
+    private static String insertRecord(int index, List<Pair> cells) {
+        StringBuilder sb = new StringBuilder("I ").append(index).append(' ').append(cells.size());
+        for(Pair cell : cells) {
+            sb.append(' ');
+            appendString(sb, cell.getKey()).append(' ');
+            appendString(sb, cell.getValue());
+        }
+        return sb.toString();
+    }
+
+    // Append a string as <length>:<text>, escaping backslashes and line breaks
+    private static StringBuilder appendString(StringBuilder sb, String s) {
+        sb.append(s.length()).append(':');
+        for(int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if(c == '\\') {
+                sb.append("\\\\");
+            } else if(c == '\n') {
+                sb.append("\\n");
+            } else if(c == '\r') {
+                sb.append("\\r");
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb;
+    }
+
+    // Read a space-terminated number starting at pos[0]
+    private static int readInt(String line, int[] pos) {
+        int end = line.indexOf(' ', pos[0]);
+        int value = Integer.parseInt(line.substring(pos[0], end));
+        pos[0] = end + 1;
+        return value;
+    }
+
+    // Read a <length>:<text> string starting at pos[0], undoing its escapes and skipping the following space
+    private static String readString(String line, int[] pos) {
+        int colon = line.indexOf(':', pos[0]);
+        int length = Integer.parseInt(line.substring(pos[0], colon));
+        StringBuilder sb = new StringBuilder(length);
+        int i = colon + 1;
+        while(sb.length() < length) {
+            char c = line.charAt(i++);
+            if(c == '\\') {
+                char escaped = line.charAt(i++);
+                if(escaped == 'n') {
+                    c = '\n';
+                } else if(escaped == 'r') {
+                    c = '\r';
+                } else if(escaped == '\\') {
+                    c = '\\';
+                } else {
+                    throw new IllegalArgumentException("Unknown escape \\" + escaped);
+                }
+            }
+            sb.append(c);
+        }
+        pos[0] = i + 1;
+        return sb.toString();
+    }
+}
@@ -0,0 +1,138 @@
+package asciiproject.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import asciiproject.model.Pair;
+import asciiproject.model.Row;
+import asciiproject.model.Table;
+
+/*
+    Hash index from cell key to the cell(s) holding it, as the row object stored by the table plus the column.
+    Rows are referenced by identity, not position, so inserting, deleting or reordering rows moves no
+    entry; only changes that move cells inside a row (deleting a cell, sorting) re-index that row.
+    The position of a row is resolved through the table when a lookup needs it.
+    A concurrent index (see KeyIndex(boolean)) keeps its chains in a ConcurrentHashMap and replaces
+    them instead of changing them, so threads editing different rows can update it and look keys up
+    without a common lock.
+*/
+public class KeyIndex {
+    // A cell holding a key; more than one per key only for duplicates loaded from a file
+    public static class Cell {
+        private final Row row;
+        private final int col;
+        private final Cell next; // Next cell with the same key
+
+        Cell(Row row, int col, Cell next) {
+            this.row = row;
+            this.col = col;
+            this.next = next;
+        }
+
+        public Row getRow() {
+            return row;
+        }
+
+        public int getCol() {
+            return col;
+        }
+    }
+
+    // key -> cells with that key, chained
+    private final Map<String, Cell> cells;
+
+    // Constructor: an index used by one writer at a time
+    public KeyIndex() {
+        this(false);
+    }
+
+    // Constructor: a concurrent index can be updated by several threads at once
+    public KeyIndex(boolean concurrent) {
+        this.cells = concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
+    }
+
+    // Rebuild the whole index from the table
+    public void rebuild(Table table) {
+        cells.clear();
+        for(Row row : table.getRows()) {
+            addRow(row);
+        }
+    }
+
+    // Clear the index
+    public void clear() {
+        cells.clear();
+    }
+
+    // Check if any cell has the key
+    public boolean contains(String key) {
+        return cells.containsKey(key);
+    }
+
+    // Get a cell with the key, or null if there is none
+    public Cell lookup(String key) {
+        return cells.get(key);
+    }
+
+    // Number of cells with the key (more than one only for duplicates loaded from a file)
+    public int count(String key) {
+        int count = 0;
+        for(Cell cell = cells.get(key); cell != null; cell = cell.next) {
+            count++;
+        }
+        return count;
+    }
+
+    // Index a single cell
+    public void put(String key, Row row, int col) {
+        cells.compute(key, (k, first) -> new Cell(row, col, first));
+    }
+
+    // Index a single cell if no other cell has the key; returns false, changing nothing, if one has
+    public boolean claim(String key, Row row, int col) {
+        return cells.putIfAbsent(key, new Cell(row, col, null)) == null;
+    }
+
+    // Remove a single cell from the index
+    public void remove(String key, Row row, int col) {
+        cells.computeIfPresent(key, (k, first) -> without(first, row, col));
+    }
+
+    // Index every cell of a newly added row
+    public void addRow(Row row) {
+        addCells(row, row.getCells());
+    }
+
+    // Remove every cell of a deleted row
+    public void removeRow(Row row) {
+        removeCells(row, row.getCells());
+    }
+
+    // Index cells of a row at their positions in the list
+    public void addCells(Row row, List<Pair> rowCells) {
+        for(int j = 0; j < rowCells.size(); j++) {
+            put(rowCells.get(j).getKey(), row, j);
+        }
+    }
+
+    // Remove cells of a row indexed at their positions in the list (ex. the cells before a sort)
+    public void removeCells(Row row, List<Pair> rowCells) {
+        for(int j = 0; j < rowCells.size(); j++) {
+            remove(rowCells.get(j).getKey(), row, j);
+        }
+    }
+
+    // The chain without the given cell; cells before it are copied, the chain itself is not changed
+    private static Cell without(Cell first, Row row, int col) {
+        if(first == null) {
+            return null;
+        }
+        if(first.row == row && first.col == col) {
+            return first.next;
+        }
+        Cell rest = without(first.next, row, col);
+        return rest == first.next ? first : new Cell(first.row, first.col, rest);
+    }
+}
@@ -0,0 +1,147 @@
+package asciiproject.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/*
+    Aho-Corasick automaton that finds every occurrence of a set of patterns in one pass over a text.
+    Every end position of a match reports all patterns ending there, so overlapping matches are
+    counted the same way as SearchTask.countOccurrences (ex. "aa" occurs 3 times in "aaaa").
+    ASCII transitions are a complete table (no failure links followed while scanning), other
+    characters go through a map per state and the failure links.
+    Built once, then safe to use from several threads.
+*/
+public class MultiPatternMatcher {
+    private static final int ASCII = 128;
+
+    private final int patternCount;
+    private final int[] asciiNext; // [state * ASCII + c] -> next state
+    private final List<Map<Character, Integer>> children; // Non-ASCII trie edges per state, null if none
+    private final int[] fail;
+    private final int[][] outputs; // Patterns ending at each state, including those of its failure chain
+
+    // Build the automaton over non-empty, distinct patterns; pattern ids are their indexes in the list
+    public MultiPatternMatcher(List<String> patterns) {
+        this.patternCount = patterns.size();
+
+        // Build the trie
+        List<int[]> ascii = new ArrayList<>();
+        List<Map<Character, Integer>> other = new ArrayList<>();
+        List<List<Integer>> ends = new ArrayList<>();
+        newState(ascii, other, ends);
+        for(int p = 0; p < patterns.size(); p++) {
+            String pattern = patterns.get(p);
+            if(pattern.isEmpty()) {
+                throw new IllegalArgumentException("Search terms must not be empty");
+            }
+            int state = 0;
+            for(int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                int next = c < ASCII ? ascii.get(state)[c] : other.get(state).getOrDefault(c, 0);
+                if(next == 0) {
+                    next = newState(ascii, other, ends);
+                    if(c < ASCII) {
+                        ascii.get(state)[c] = next;
+                    } else {
+                        other.get(state).put(c, next);
+                    }
+                }
+                state = next;
+            }
+            ends.get(state).add(p);
+        }
+
+        int states = ascii.size();
+        asciiNext = new int[states * ASCII];
+        fail = new int[states];
+        outputs = new int[states][];
+        children = new ArrayList<>(Collections.nCopies(states, null));
+
+        // Breadth-first: failure links, ASCII transitions completed through them, merged outputs
+        Queue<Integer> queue = new ArrayDeque<>();
+        queue.add(0);
+        while(!queue.isEmpty()) {
+            int state = queue.poll();
+            int[] edges = ascii.get(state);
+            int failState = fail[state];
+
+            for(int c = 0; c < ASCII; c++) {
+                int child = edges[c];
+                if(child != 0) {
+                    fail[child] = state == 0 ? 0 : asciiNext[failState * ASCII + c];
+                    asciiNext[state * ASCII + c] = child;
+                    queue.add(child);
+                } else {
+                    asciiNext[state * ASCII + c] = state == 0 ? 0 : asciiNext[failState * ASCII + c];
+                }
+            }
+            if(!other.get(state).isEmpty()) {
+                children.set(state, other.get(state));
+                for(Map.Entry<Character, Integer> edge : other.get(state).entrySet()) {
+                    int child = edge.getValue();
+                    fail[child] = state == 0 ? 0 : step(failState, edge.getKey());
+                    queue.add(child);
+                }
+            }
+
+            int[] own = ends.get(state).stream().mapToInt(Integer::intValue).toArray();
+            int[] inherited = state == 0 ? new int[0] : outputs[failState];
+            int[] merged = Arrays.copyOf(own, own.length + inherited.length);
+            System.arraycopy(inherited, 0, merged, own.length, inherited.length);
+            outputs[state] = merged;
+        }
+    }
+
+    // Number of patterns the automaton was built with
+    public int patternCount() {
+        return patternCount;
+    }
+
+    /*
+        Add the occurrences of every pattern in text to counts[pattern].
+        The ids of patterns whose count went from 0 to 1 are appended to touched starting at
+        touchedCount; returns the new touchedCount so callers can reset only what they used.
+    */
+    public int count(String text, int[] counts, int[] touched, int touchedCount) {
+        int state = 0;
+        for(int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            state = c < ASCII ? asciiNext[state * ASCII + c] : step(state, c);
+            for(int p : outputs[state]) {
+                if(counts[p]++ == 0) {
+                    touched[touchedCount++] = p;
+                }
+            }
+        }
+        return touchedCount;
+    }
+
+    // Follow a non-ASCII character from state, falling back along the failure links
+    private int step(int state, char c) {
+        while(true) {
+            Map<Character, Integer> edges = children.get(state);
+            Integer next = edges != null ? edges.get(c) : null;
+            if(next != null) {
+                return next;
+            }
+            if(state == 0) {
+                return 0;
+            }
+            state = fail[state];
+        }
+    }
+
+    // Add an empty trie state
+    private static int newState(List<int[]> ascii, List<Map<Character, Integer>> other, List<List<Integer>> ends) {
+        ascii.add(new int[ASCII]);
+        other.add(new HashMap<>(2));
+        ends.add(new ArrayList<>(1));
+        return ascii.size() - 1;
+    }
+}
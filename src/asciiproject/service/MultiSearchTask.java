@@ -0,0 +1,117 @@
+package asciiproject.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RecursiveTask;
+
+import asciiproject.model.Pair;
+import asciiproject.model.Row;
+import asciiproject.model.SearchResult;
+import asciiproject.model.Table;
+
+/*
+    Counts the occurrences of several terms at once in the keys and values of a range of rows,
+    scanning every key and value a single time with a MultiPatternMatcher.
+    Splits like SearchTask when run in a ForkJoinPool, and like it reads only the candidate rows
+    when they are few; the hits of every term come back in [row, col] order.
+*/
+public class MultiSearchTask extends RecursiveTask<List<List<SearchResult.Hit>>> {
+    private static final long serialVersionUID = 1L;
+    private static final int CHUNK_CELLS = 1 << 14; // Roughly how many cells one task scans before splitting
+
+    private final Table table;
+    private final MultiPatternMatcher matcher;
+    private final Map<Row, int[]> candidates; // Columns per row that may contain one of the terms, or null for all cells
+    private final int from;
+    private final int to;
+    private final boolean parallel;
+
+    // Search the rows [from, to) of the table, splitting into subtasks if parallel is set
+    public MultiSearchTask(Table table, MultiPatternMatcher matcher, Map<Row, int[]> candidates, int from, int to, boolean parallel) {
+        this.table = table;
+        this.matcher = matcher;
+        this.candidates = candidates;
+        this.from = from;
+        this.to = to;
+        this.parallel = parallel;
+    }
+
+    @Override
+    protected List<List<SearchResult.Hit>> compute() {
+        int[] positions = candidates != null ? SearchTask.candidatePositions(table, candidates, from, to) : null;
+        if(positions == null && parallel && to - from > 1 && estimatedCells() > CHUNK_CELLS) {
+            // Split in half, search the left half in this thread while the right half is forked
+            int mid = (from + to) >>> 1;
+            MultiSearchTask right = new MultiSearchTask(table, matcher, candidates, mid, to, true);
+            right.fork();
+            List<List<SearchResult.Hit>> hits = new MultiSearchTask(table, matcher, candidates, from, mid, true).compute();
+            List<List<SearchResult.Hit>> rightHits = right.join();
+            for(int p = 0; p < hits.size(); p++) {
+                hits.get(p).addAll(rightHits.get(p));
+            }
+            return hits;
+        }
+        return scan(positions);
+    }
+
+    // Estimate the cells in the range from the width of its first row
+    private long estimatedCells() {
+        return (long) (to - from) * Math.max(1, table.getRow(from).getCells().size());
+    }
+
+    // Scan the range sequentially, or only the given sorted row positions
+    private List<List<SearchResult.Hit>> scan(int[] positions) {
+        int patterns = matcher.patternCount();
+        List<List<SearchResult.Hit>> hits = new ArrayList<>(patterns);
+        for(int p = 0; p < patterns; p++) {
+            hits.add(new ArrayList<>());
+        }
+
+        // Counts are reset through the touched list after every cell instead of clearing whole arrays
+        int[] keyCounts = new int[patterns];
+        int[] valueCounts = new int[patterns];
+        int[] touched = new int[patterns * 2];
+
+        int count = positions != null ? positions.length : to - from;
+        for(int n = 0; n < count; n++) {
+            int i = positions != null ? positions[n] : from + n;
+            Row row = table.getRow(i);
+            if(candidates == null) {
+                List<Pair> cells = row.getCells();
+                for(int j = 0; j < cells.size(); j++) {
+                    searchCell(hits, i, j, cells.get(j), keyCounts, valueCounts, touched);
+                }
+                continue;
+            }
+
+            // Only the cells the index lists for this row can hold a match
+            int[] cols = candidates.get(row);
+            if(cols != null) {
+                List<Pair> cells = row.getCells();
+                for(int j : cols) {
+                    if(j < cells.size()) {
+                        searchCell(hits, i, j, cells.get(j), keyCounts, valueCounts, touched);
+                    }
+                }
+            }
+        }
+        return hits;
+    }
+
+    // Add a hit for every term found in the key or value of the cell at [i, j]
+    private void searchCell(List<List<SearchResult.Hit>> hits, int i, int j, Pair cell, int[] keyCounts, int[] valueCounts, int[] touched) {
+        int touchedCount = matcher.count(cell.getKey(), keyCounts, touched, 0);
+        touchedCount = matcher.count(cell.getValue(), valueCounts, touched, touchedCount);
+
+        // A term found in both the key and the value is listed twice, the second time its counts are already 0
+        for(int t = 0; t < touchedCount; t++) {
+            int p = touched[t];
+            if(keyCounts[p] > 0 || valueCounts[p] > 0) {
+                hits.get(p).add(new SearchResult.Hit(i, j, keyCounts[p], valueCounts[p]));
+                keyCounts[p] = 0;
+                valueCounts[p] = 0;
+            }
+        }
+    }
+}
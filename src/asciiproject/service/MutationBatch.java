@@ -0,0 +1,229 @@
+package asciiproject.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import asciiproject.model.Pair;
+import asciiproject.model.Row;
+import asciiproject.model.Table;
+
+/*
+    Edits, row inserts and row/cell deletes applied to a table as one unit by TableService.apply.
+    Operations run in the order they were added, each on the rows and columns left by the ones
+    before it, with the same 0-based indexes as the single operations:
+        edit(row, col, key, value)    a null key or value keeps the current one
+        insertRow(index, cells)       before the row at index, index == size appends
+        deleteRow(row)
+        deleteCell(row, col)          the last cell of a row cannot be deleted, delete the row instead
+    Either every operation is applied or none: the batch keeps what each operation replaced and
+    puts it back if a later operation fails or the new keys are not unique.
+*/
+public class MutationBatch {
+    enum Kind { EDIT, INSERT, DELETE_ROW, DELETE_CELL }
+
+    // An operation as requested
+    private static class Operation {
+        final Kind kind;
+        final int row;
+        final int col;
+        final String key;
+        final String value;
+        final List<Pair> cells;
+
+        Operation(Kind kind, int row, int col, String key, String value, List<Pair> cells) {
+            this.kind = kind;
+            this.row = row;
+            this.col = col;
+            this.key = key;
+            this.value = value;
+            this.cells = cells;
+        }
+    }
+
+    // An operation as applied to the table, with what it replaced so it can be undone and indexed
+    static class Applied {
+        final Kind kind;
+        final int row;
+        final int col;
+        final Row stored; // Inserted, deleted or changed row as stored by the table
+        final String oldKey; // Edit: previous cell, delete cell: the deleted cell
+        final String oldValue;
+        final String newKey; // Edit: new cell
+        final String newValue;
+        final List<Pair> cells; // Insert: cells inserted, delete row: cells deleted, delete cell: the row's cells before; copies the table never changes
+
+        Applied(Kind kind, int row, int col, Row stored, String oldKey, String oldValue, String newKey, String newValue, List<Pair> cells) {
+            this.kind = kind;
+            this.row = row;
+            this.col = col;
+            this.stored = stored;
+            this.oldKey = oldKey;
+            this.oldValue = oldValue;
+            this.newKey = newKey;
+            this.newValue = newValue;
+            this.cells = cells;
+        }
+    }
+
+    private final List<Operation> operations = new ArrayList<>();
+
+    // Set the key and/or value of the cell at [row, col]
+    public MutationBatch edit(int row, int col, String key, String value) {
+        operations.add(new Operation(Kind.EDIT, row, col, key, value, null));
+        return this;
+    }
+
+    // Insert a row with the given cells before the row at index; the cells are copied, later changes to them are not seen
+    public MutationBatch insertRow(int index, List<Pair> cells) {
+        operations.add(new Operation(Kind.INSERT, index, -1, null, null, copyOf(cells)));
+        return this;
+    }
+
+    // Delete the row at index
+    public MutationBatch deleteRow(int row) {
+        operations.add(new Operation(Kind.DELETE_ROW, row, -1, null, null, null));
+        return this;
+    }
+
+    // Delete the cell at [row, col]
+    public MutationBatch deleteCell(int row, int col) {
+        operations.add(new Operation(Kind.DELETE_CELL, row, col, null, null, null));
+        return this;
+    }
+
+    // Number of operations in the batch
+    public int size() {
+        return operations.size();
+    }
+
+    // Check if the batch has no operations
+    public boolean isEmpty() {
+        return operations.isEmpty();
+    }
+
+    /*
+        Apply every operation to the table in order, without checking key uniqueness.
+        If one fails, the ones applied before it are undone and an IllegalArgumentException naming
+        the failed operation is thrown.
+    */
+    List<Applied> applyTo(Table table) {
+        List<Applied> applied = new ArrayList<>(operations.size());
+        for(Operation operation : operations) {
+            try {
+                applied.add(apply(table, operation));
+            } catch(IllegalArgumentException | IndexOutOfBoundsException e) {
+                undo(table, applied);
+                throw new IllegalArgumentException("Operation " + (applied.size() + 1) + " of the batch failed: " + e.getMessage(), e);
+            }
+        }
+        return applied;
+    }
+
+    // Hand the operations to a change log replayer one by one, in order
+    void replayTo(ChangeLog.Replayer replayer) {
+        for(Operation op : operations) {
+            switch(op.kind) {
+                case EDIT:
+                    replayer.edit(op.row, op.col, op.key, op.value);
+                    break;
+                case INSERT:
+                    replayer.insert(op.row, copyOf(op.cells));
+                    break;
+                case DELETE_ROW:
+                    replayer.deleteRow(op.row);
+                    break;
+                case DELETE_CELL:
+                    replayer.deleteCell(op.row, op.col);
+                    break;
+            }
+        }
+    }
+
+    // Undo applied operations, newest first
+    void undo(Table table, List<Applied> applied) {
+        for(int i = applied.size() - 1; i >= 0; i--) {
+            Applied a = applied.get(i);
+            switch(a.kind) {
+                case EDIT:
+                    table.setCell(a.row, a.col, a.oldKey, a.oldValue);
+                    break;
+                case INSERT:
+                    table.removeRow(a.row);
+                    break;
+                case DELETE_ROW:
+                    table.addRowAt(a.row, a.stored); // The table takes its own row back as is
+                    break;
+                case DELETE_CELL:
+                    table.updateCells(a.row, cells -> cells.add(a.col, new Pair(a.oldKey, a.oldValue)));
+                    break;
+            }
+        }
+    }
+
+    // Apply a single operation
+    private static Applied apply(Table table, Operation op) {
+        switch(op.kind) {
+            case EDIT: {
+                Pair cell = cellAt(table, op.row, op.col);
+                String oldKey = cell.getKey();
+                String oldValue = cell.getValue();
+                String newKey = op.key != null ? op.key : oldKey;
+                String newValue = op.value != null ? op.value : oldValue;
+                table.setCell(op.row, op.col, newKey, newValue);
+                return new Applied(Kind.EDIT, op.row, op.col, table.getRow(op.row), oldKey, oldValue, newKey, newValue, null);
+            }
+
+            case INSERT: {
+                if(op.row < 0 || op.row > table.size()) {
+                    throw new IllegalArgumentException("Row index " + op.row + " is out of bounds");
+                }
+                if(op.cells.isEmpty()) {
+                    throw new IllegalArgumentException("A row needs at least one cell");
+                }
+                // The row gets its own cells, so later edits of the batch leave the operation and its record as inserted
+                table.addRowAt(op.row, new Row(copyOf(op.cells)));
+                return new Applied(Kind.INSERT, op.row, -1, table.getRow(op.row), null, null, null, null, copyOf(op.cells));
+            }
+
+            case DELETE_ROW: {
+                if(op.row < 0 || op.row >= table.size()) {
+                    throw new IllegalArgumentException("Row index " + op.row + " is out of bounds");
+                }
+                Row removed = table.removeRow(op.row);
+                return new Applied(Kind.DELETE_ROW, op.row, -1, removed, null, null, null, null, copyOf(removed.getCells()));
+            }
+
+            case DELETE_CELL: {
+                Pair cell = cellAt(table, op.row, op.col);
+                if(table.getRow(op.row).getCells().size() == 1) {
+                    throw new IllegalArgumentException("Row " + op.row + " has only one cell, delete the row instead");
+                }
+                String key = cell.getKey();
+                String value = cell.getValue();
+                List<Pair> before = copyOf(table.getRow(op.row).getCells());
+                table.updateCells(op.row, cells -> cells.remove(op.col));
+                return new Applied(Kind.DELETE_CELL, op.row, op.col, table.getRow(op.row), key, value, null, null, before);
+            }
+
+            default:
+                throw new IllegalStateException("Unknown operation " + op.kind);
+        }
+    }
+
+    // The cell at [row, col], or IllegalArgumentException if there is none
+    private static Pair cellAt(Table table, int row, int col) {
+        if(row < 0 || row >= table.size() || col < 0 || col >= table.getRow(row).getCells().size()) {
+            throw new IllegalArgumentException("Cell [" + row + "," + col + "] is out of bounds");
+        }
+        return table.getRow(row).getCells().get(col);
+    }
+
+    // Plain copies of cells, which may be views that change with the row
+    private static List<Pair> copyOf(List<Pair> cells) {
+        List<Pair> copy = new ArrayList<>(cells.size());
+        for(Pair cell : cells) {
+            copy.add(new Pair(cell.getKey(), cell.getValue()));
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,334 @@
+package asciiproject.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+    A compiled regex or wildcard query over keys and values, plus a literal every match must contain.
+    - Regex queries use find(): every non-overlapping, non-empty match in a key or value is counted.
+    - Wildcard queries (* = any characters, ? = one character) must match a whole key or value,
+      which counts once.
+    The literal is used as a prefilter: text that does not contain it is skipped without running
+    the regex, and the n-gram index can narrow the rows down with it.
+    Compiled queries are kept in a small LRU cache so repeated queries are not recompiled.
+*/
+public class PatternQuery implements SearchTask.CellMatcher {
+    private static final int CACHE_SIZE = 64;
+
+    // Most recently used compiled queries, keyed by "r:" or "w:" + query
+    private static final Map<String, PatternQuery> CACHE = new LinkedHashMap<String, PatternQuery>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PatternQuery> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private final Pattern pattern;
+    private final boolean wholeText;
+    private final String literal; // Required substring of every match, or null if none is known
+
+    private PatternQuery(Pattern pattern, boolean wholeText, String literal) {
+        this.pattern = pattern;
+        this.wholeText = wholeText;
+        this.literal = literal;
+    }
+
+    /*
+        Get the compiled query, from the cache if it was used recently.
+        Throws IllegalArgumentException (PatternSyntaxException) for an invalid regex.
+    */
+    public static PatternQuery compile(String query, boolean wildcard) {
+        String cacheKey = (wildcard ? "w:" : "r:") + query;
+        synchronized(CACHE) {
+            PatternQuery cached = CACHE.get(cacheKey);
+            if(cached != null) {
+                return cached;
+            }
+        }
+
+        PatternQuery compiled = wildcard
+                ? new PatternQuery(Pattern.compile(wildcardToRegex(query), Pattern.DOTALL), true, wildcardLiteral(query))
+                : new PatternQuery(Pattern.compile(query), false, regexLiteral(query));
+        synchronized(CACHE) {
+            CACHE.put(cacheKey, compiled);
+        }
+        return compiled;
+    }
+
+    // Required substring of every match, or null
+    public String getLiteral() {
+        return literal;
+    }
+
+    // Number of matches in a key or value
+    @Override
+    public int count(String text) {
+        if(literal != null && !text.contains(literal)) {
+            return 0;
+        }
+
+        Matcher matcher = pattern.matcher(text);
+        if(wholeText) {
+            return matcher.matches() ? 1 : 0;
+        }
+        int count = 0;
+        while(matcher.find()) {
+            if(matcher.end() > matcher.start()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Translate a wildcard pattern to a regex, quoting everything but * and ?
+    private static String wildcardToRegex(String query) {
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for(int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if(c == '*' || c == '?') {
+                if(literal.length() > 0) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                regex.append(c == '*' ? ".*" : ".");
+            } else {
+                literal.append(c);
+            }
+        }
+        if(literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        return regex.toString();
+    }
+
+    // Longest run of characters between wildcards
+    private static String wildcardLiteral(String query) {
+        String longest = "";
+        for(String run : query.split("[*?]")) {
+            if(run.length() > longest.length()) {
+                longest = run;
+            }
+        }
+        return longest.isEmpty() ? null : longest;
+    }
+
+    /*
+        Longest literal run that every match of the regex must contain, or null if none can be
+        found safely. Only plain characters and escapes that stand for one character (punctuation,
+        \t, \x41, \0101, \cA, \N{name}, ...) outside groups and classes are collected, so a quantifier
+        after a group or class cannot make a collected literal optional; a quantifier that allows zero
+        repetitions drops the atom before it. Escapes that do not stand for one character
+        (\d, \p{L}, \k<name>, \1, \b, ...) end the run and their operand is skipped.
+        Alternation, inline flags, \Q...\E and unknown escapes give up on the prefilter entirely.
+    */
+    private static String regexLiteral(String regex) {
+        String longest = "";
+        StringBuilder run = new StringBuilder();
+        int atom = 0; // Characters the last atom added to run, removed again if a quantifier makes it optional
+        int depth = 0;
+
+        for(int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            int added = 0;
+            switch(c) {
+                case '|':
+                    return null;
+
+                case '(':
+                    if(i + 1 < regex.length() && regex.charAt(i + 1) == '?'
+                            && i + 2 < regex.length() && Character.isLetter(regex.charAt(i + 2))) {
+                        return null; // Inline flags such as (?i) change what the literal matches
+                    }
+                    longest = longer(longest, run);
+                    run.setLength(0);
+                    depth++;
+                    break;
+
+                case ')':
+                    depth--;
+                    break;
+
+                case '[': {
+                    // Skip the whole class, a ']' right after '[' or '[^' is part of it
+                    longest = longer(longest, run);
+                    run.setLength(0);
+                    int j = i + 1;
+                    if(j < regex.length() && regex.charAt(j) == '^') {
+                        j++;
+                    }
+                    if(j < regex.length() && regex.charAt(j) == ']') {
+                        j++;
+                    }
+                    int nested = 0;
+                    while(j < regex.length() && (regex.charAt(j) != ']' || nested > 0)) {
+                        if(regex.charAt(j) == '\\') {
+                            j++;
+                        } else if(regex.charAt(j) == '[') {
+                            nested++;
+                        } else if(regex.charAt(j) == ']') {
+                            nested--;
+                        }
+                        j++;
+                    }
+                    i = j;
+                    break;
+                }
+
+                case '*':
+                case '?':
+                case '{':
+                    // The previous atom may be absent (or {n,m} may be parsed as exactly n, be conservative)
+                    run.setLength(run.length() - atom);
+                    longest = longer(longest, run);
+                    run.setLength(0);
+                    if(c == '{') {
+                        int close = regex.indexOf('}', i);
+                        i = close < 0 ? regex.length() : close;
+                    }
+                    break;
+
+                case '+':
+                    // The previous atom occurs at least once, but what follows is not adjacent to it
+                    longest = longer(longest, run);
+                    run.setLength(0);
+                    break;
+
+                case '.':
+                case '^':
+                case '$':
+                    longest = longer(longest, run);
+                    run.setLength(0);
+                    break;
+
+                case '\\': {
+                    if(i + 1 >= regex.length() || regex.charAt(i + 1) == 'Q') {
+                        return null;
+                    }
+                    StringBuilder decoded = new StringBuilder(2);
+                    i = decodeEscape(regex, i + 1, decoded);
+                    if(i < 0) {
+                        return null;
+                    }
+                    if(decoded.length() > 0 && depth == 0) {
+                        run.append(decoded);
+                        added = decoded.length();
+                    } else {
+                        // Character classes (\d, \p{L}, ...), boundaries, back references and the like
+                        longest = longer(longest, run);
+                        run.setLength(0);
+                    }
+                    break;
+                }
+
+                default:
+                    if(depth == 0) {
+                        run.append(c);
+                        added = 1;
+                    }
+            }
+            atom = added;
+        }
+
+        longest = longer(longest, run);
+        return longest.isEmpty() ? null : longest;
+    }
+
+    /*
+        Decode the escape whose letter is at regex[start] (the character after the backslash).
+        A literal escape appends the character it stands for to decoded, other escapes append
+        nothing. Returns the index of the last character of the escape, or -1 for an escape that
+        is not known here.
+    */
+    private static int decodeEscape(String regex, int start, StringBuilder decoded) {
+        char c = regex.charAt(start);
+        if(!Character.isLetterOrDigit(c)) {
+            decoded.append(c); // Escaped punctuation is a literal character
+            return start;
+        }
+
+        int control = "tnrfae".indexOf(c);
+        if(control >= 0) {
+            decoded.append("\t\n\r\f\007\033".charAt(control));
+            return start;
+        }
+        if("BAGZzdDsSwWhHvVRX".indexOf(c) >= 0) {
+            return start; // Predefined classes and boundaries
+        }
+
+        switch(c) {
+            case '0': {
+                // \0n, \0nn or \0mnn with m <= 3
+                int end = start + 1;
+                int max = end < regex.length() && regex.charAt(end) <= '3' ? 3 : 2;
+                int value = 0;
+                while(end < regex.length() && end - start - 1 < max && regex.charAt(end) >= '0' && regex.charAt(end) <= '7') {
+                    value = value * 8 + (regex.charAt(end) - '0');
+                    end++;
+                }
+                decoded.append((char) value);
+                return end - 1;
+            }
+
+            case 'x': {
+                // \xhh or \x{h...h}
+                if(start + 1 < regex.length() && regex.charAt(start + 1) == '{') {
+                    int close = regex.indexOf('}', start);
+                    decoded.appendCodePoint(Integer.parseInt(regex.substring(start + 2, close), 16));
+                    return close;
+                }
+                decoded.append((char) Integer.parseInt(regex.substring(start + 1, start + 3), 16));
+                return start + 2;
+            }
+
+            case 'u':
+                // u followed by 4 hex digits, a surrogate pair is two escapes decoded one after the other
+                decoded.append((char) Integer.parseInt(regex.substring(start + 1, start + 5), 16));
+                return start + 4;
+
+            case 'c':
+                decoded.append((char) (regex.charAt(start + 1) ^ 64));
+                return start + 1;
+
+            case 'N': {
+                // \N{name}
+                int close = regex.indexOf('}', start);
+                decoded.appendCodePoint(Character.codePointOf(regex.substring(start + 2, close)));
+                return close;
+            }
+
+            case 'p':
+            case 'P':
+                // \pL or \p{name}
+                return regex.charAt(start + 1) == '{' ? regex.indexOf('}', start) : start + 1;
+
+            case 'k':
+                // \k<name>
+                return regex.indexOf('>', start);
+
+            case 'b':
+                // \b or \b{g}
+                return start + 1 < regex.length() && regex.charAt(start + 1) == '{' ? regex.indexOf('}', start) : start;
+
+            default:
+                if(c >= '1' && c <= '9') {
+                    // Back reference, its number may go on for several digits
+                    int end = start;
+                    while(end + 1 < regex.length() && Character.isDigit(regex.charAt(end + 1))) {
+                        end++;
+                    }
+                    return end;
+                }
+                return -1;
+        }
+    }
+
+    // The longer of the best run so far and the current run
+    private static String longer(String longest, StringBuilder run) {
+        return run.length() > longest.length() ? run.toString() : longest;
+    }
+}
@@ -0,0 +1,82 @@
+package asciiproject.service;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import asciiproject.model.Pair;
+
+/*
+    Sorts the cells of a row by the unicode order of key + value.
+    Keys and values are read once into sort entries and compared as if concatenated, without
+    building the concatenated strings; very wide rows are sorted with Arrays.parallelSort.
+*/
+public class RowSorter {
+    public static final int PARALLEL_THRESHOLD = 1 << 13; // Rows at least this wide are sorted in parallel
+
+    // A cell with its key and value read once
+    private static class Entry {
+        final String key;
+        final String value;
+        final Pair cell;
+
+        Entry(Pair cell) {
+            this.key = cell.getKey();
+            this.value = cell.getValue();
+            this.cell = cell;
+        }
+    }
+
+    // Same result as (key1 + value1).compareTo(key2 + value2)
+    private static final Comparator<Entry> ASCENDING = (e1, e2) -> compareConcatenated(e1.key, e1.value, e2.key, e2.value);
+    private static final Comparator<Entry> DESCENDING = ASCENDING.reversed();
+
+    private RowSorter() {}
+
+    // Sort cells in "asc" or "desc" order, in parallel if the row is wide
+    public static void sort(List<Pair> cells, String order) {
+        sort(cells, order.equals("desc"), cells.size() >= PARALLEL_THRESHOLD);
+    }
+
+    // Sort cells ascending or descending, optionally with Arrays.parallelSort
+    public static void sort(List<Pair> cells, boolean descending, boolean parallel) {
+        Entry[] entries = new Entry[cells.size()];
+        for(int i = 0; i < entries.length; i++) {
+            entries[i] = new Entry(cells.get(i));
+        }
+
+        Comparator<Entry> comparator = descending ? DESCENDING : ASCENDING;
+        if(parallel) {
+            Arrays.parallelSort(entries, comparator);
+        } else {
+            Arrays.sort(entries, comparator);
+        }
+
+        // Write the sorted order back
+        for(int i = 0; i < entries.length; i++) {
+            cells.set(i, entries[i].cell);
+        }
+    }
+
+    // Compare k1 + v1 with k2 + v2 character by character
+    public static int compareConcatenated(String k1, String v1, String k2, String v2) {
+        // Keys of equal length line up, so the keys decide first and the values break ties
+        if(k1.length() == k2.length()) {
+            int byKey = k1.compareTo(k2);
+            return byKey != 0 ? byKey : v1.compareTo(v2);
+        }
+
+        int length1 = k1.length() + v1.length();
+        int length2 = k2.length() + v2.length();
+        int common = Math.min(length1, length2);
+
+        for(int i = 0; i < common; i++) {
+            char c1 = i < k1.length() ? k1.charAt(i) : v1.charAt(i - k1.length());
+            char c2 = i < k2.length() ? k2.charAt(i) : v2.charAt(i - k2.length());
+            if(c1 != c2) {
+                return c1 - c2;
+            }
+        }
+        return length1 - length2;
+    }
+}
@@ -0,0 +1,290 @@
+package asciiproject.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import asciiproject.model.SearchResult;
+
+/*
+    Runs a script of table commands back to back without the interactive menu, one command per line:
+        search <term>                        search for the rest of the line
+        search_all <term> <term> ...         search for several whitespace-separated terms in one pass
+        search_regex <regex>                 search with a regex, the rest of the line
+        search_wildcard <pattern>            search with a wildcard pattern (* and ?), the rest of the line
+        edit <row>x<col> key=<k> value=<v>   0-based cell like the edit menu, key= and/or value=
+        add_row <cells> [after=<row>]        random cells after a row (0 = before the first row), default last
+        delete_row <row>                     1-based row like the delete_row menu
+        delete_cell <row>x<col>              0-based cell like the delete_cell menu
+        sort <row>|<from>-<to>|all [asc|desc]   1-based rows like the sort menu, default asc
+        sort_rows <col> [asc|desc]           reorder rows by a 1-based column
+        print [<from>-<to>]                  1-based rows, default the first TableRenderer.DEFAULT_LIMIT
+        save                                 write the changes made so far and flush them to the disk
+        begin ... commit                     apply the edit, add_row, delete_row and delete_cell
+                                             commands in between as one MutationBatch
+    Blank lines and lines starting with # are skipped. A failing command is reported with its line
+    number and the script carries on; a failing batch is reported at its commit and changes nothing.
+    Saves are deferred: the table is written every flushEvery commands (0 = only at the end)
+    instead of after every change.
+*/
+public class ScriptRunner {
+    private static final Set<String> BATCHED = new HashSet<>(Arrays.asList("edit", "add_row", "delete_row", "delete_cell"));
+
+    private final TableService tableService;
+    private final TableRenderer renderer = new TableRenderer();
+    private final int flushEvery;
+    private MutationBatch batch; // Open batch between begin and commit, null outside one
+    private int batchLine; // Line of the open batch's begin
+
+    // Run scripts against the service, writing changes every flushEvery commands (0 = at the end)
+    public ScriptRunner(TableService tableService, int flushEvery) {
+        this.tableService = tableService;
+        this.flushEvery = flushEvery;
+    }
+
+    // Run every command of the script and write the remaining changes; returns the number of failed commands
+    public int run(BufferedReader script) throws IOException {
+        tableService.setDeferredSaves(true);
+        int lineNumber = 0;
+        int commands = 0;
+        int failed = 0;
+        long start = System.nanoTime();
+
+        try {
+            String line;
+            while((line = script.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if(line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                try {
+                    execute(line, lineNumber);
+                } catch(IllegalArgumentException | IndexOutOfBoundsException e) {
+                    System.out.println("Line " + lineNumber + ": " + e.getMessage());
+                    failed++;
+                }
+
+                commands++;
+                if(flushEvery > 0 && commands % flushEvery == 0) {
+                    tableService.flush();
+                }
+            }
+            if(batch != null) {
+                System.out.println("Line " + batchLine + ": batch was not committed, its commands were not applied");
+                batch = null;
+                failed++;
+            }
+        } finally {
+            tableService.flush();
+            tableService.setDeferredSaves(false);
+        }
+
+        System.out.printf(Locale.ROOT, "Ran %d command/s (%d failed) in %.1f ms.%n%n",
+                commands, failed, (System.nanoTime() - start) / 1e6);
+        return failed;
+    }
+
+    // Run a single command line
+    private void execute(String line, int lineNumber) {
+        String[] words = line.split("\\s+");
+        String command = words[0].toLowerCase(Locale.ROOT);
+        if(batch != null && !BATCHED.contains(command) && !command.equals("commit")) {
+            throw new IllegalArgumentException(words[0] + " cannot be used inside begin ... commit");
+        }
+
+        switch(command) {
+            case "search": {
+                String term = line.substring(words[0].length()).trim();
+                if(term.isEmpty()) {
+                    throw new IllegalArgumentException("search needs a term");
+                }
+                renderer.printSearchResult(tableService.search(term), TableRenderer.DEFAULT_LIMIT);
+                break;
+            }
+
+            case "search_regex":
+            case "search_wildcard": {
+                String pattern = line.substring(words[0].length()).trim();
+                if(pattern.isEmpty()) {
+                    throw new IllegalArgumentException(command + " needs a pattern");
+                }
+                renderer.printSearchResult(tableService.searchPattern(pattern, command.equals("search_wildcard")), TableRenderer.DEFAULT_LIMIT);
+                break;
+            }
+
+            case "search_all": {
+                if(words.length < 2) {
+                    throw new IllegalArgumentException("search_all needs at least one term");
+                }
+                List<String> terms = Arrays.asList(words).subList(1, words.length);
+                for(SearchResult result : tableService.searchAll(terms)) {
+                    renderer.printSearchResult(result, TableRenderer.DEFAULT_LIMIT);
+                }
+                break;
+            }
+
+            case "edit": {
+                expectWords(words, 3, 4);
+                int[] cell = parseCell(words[1]);
+                String key = null;
+                String value = null;
+                for(int i = 2; i < words.length; i++) {
+                    if(words[i].startsWith("key=")) {
+                        key = words[i].substring(4);
+                    } else if(words[i].startsWith("value=")) {
+                        value = words[i].substring(6);
+                    } else {
+                        throw new IllegalArgumentException("Expected key=<key> or value=<value>: " + words[i]);
+                    }
+                }
+                if(batch != null) {
+                    batch.edit(cell[0], cell[1], key, value);
+                } else {
+                    tableService.edit(cell[0], cell[1], key, value);
+                }
+                break;
+            }
+
+            case "add_row": {
+                expectWords(words, 2, 3);
+                int cells = parseInt(words[1]);
+                int after = tableService.getTable().size();
+                if(words.length == 3) {
+                    if(!words[2].startsWith("after=")) {
+                        throw new IllegalArgumentException("Expected after=<row>: " + words[2]);
+                    }
+                    after = parseInt(words[2].substring(6));
+                }
+                if(batch != null) {
+                    batch.insertRow(after, tableService.randomRow(cells));
+                } else {
+                    tableService.insertRandomRow(after, cells);
+                }
+                break;
+            }
+
+            case "delete_row": {
+                expectWords(words, 2, 2);
+                int row = parseInt(words[1]) - 1;
+                if(batch != null) {
+                    batch.deleteRow(row);
+                } else {
+                    tableService.deleteRow(row);
+                }
+                break;
+            }
+
+            case "delete_cell": {
+                expectWords(words, 2, 2);
+                int[] cell = parseCell(words[1]);
+                if(batch != null) {
+                    batch.deleteCell(cell[0], cell[1]);
+                } else {
+                    tableService.deleteCell(cell[0], cell[1]);
+                }
+                break;
+            }
+
+            case "begin":
+                expectWords(words, 1, 1);
+                batch = new MutationBatch();
+                batchLine = lineNumber;
+                break;
+
+            case "commit": {
+                expectWords(words, 1, 1);
+                if(batch == null) {
+                    throw new IllegalArgumentException("commit without begin");
+                }
+                MutationBatch committed = batch;
+                batch = null;
+                tableService.apply(committed);
+                break;
+            }
+
+            case "sort": {
+                expectWords(words, 2, 3);
+                String order = words.length == 3 ? words[2].toLowerCase(Locale.ROOT) : "asc";
+                if(words[1].equalsIgnoreCase("all")) {
+                    tableService.sortAllRows(order);
+                } else if(words[1].contains("-")) {
+                    int[] range = parseRange(words[1]);
+                    tableService.sortRows(range[0], range[1], order);
+                } else {
+                    tableService.sortRow(parseInt(words[1]) - 1, order);
+                }
+                break;
+            }
+
+            case "sort_rows": {
+                expectWords(words, 2, 3);
+                String order = words.length == 3 ? words[2].toLowerCase(Locale.ROOT) : "asc";
+                tableService.sortTableByColumn(parseInt(words[1]) - 1, order);
+                break;
+            }
+
+            case "print": {
+                expectWords(words, 1, 2);
+                if(words.length == 1) {
+                    tableService.printTable();
+                } else {
+                    int[] range = parseRange(words[1]);
+                    if(range[0] < 0 || range[0] > range[1] || range[1] > tableService.getTable().size()) {
+                        throw new IllegalArgumentException("Row range " + words[1] + " is out of bounds");
+                    }
+                    tableService.printTable(range[0], range[1], range[1] - range[0]);
+                }
+                break;
+            }
+
+            case "save":
+                expectWords(words, 1, 1);
+                tableService.flush();
+                tableService.waitForSaves(true);
+                break;
+
+            default:
+                throw new IllegalArgumentException("Unknown command: " + words[0]);
+        }
+    }
+
+    // Check the number of words of a command
+    private static void expectWords(String[] words, int min, int max) {
+        if(words.length < min || words.length > max) {
+            throw new IllegalArgumentException("Wrong number of arguments for " + words[0]);
+        }
+    }
+
+    // Parse a 0-based rowxcol cell
+    private static int[] parseCell(String text) {
+        String[] parts = text.toLowerCase(Locale.ROOT).split("x");
+        if(parts.length != 2) {
+            throw new IllegalArgumentException("Expected a cell as rowxcol: " + text);
+        }
+        return new int[] {parseInt(parts[0]), parseInt(parts[1])};
+    }
+
+    // Parse a 1-based inclusive range from-to into 0-based [from, to)
+    private static int[] parseRange(String text) {
+        String[] parts = text.split("-");
+        if(parts.length != 2) {
+            throw new IllegalArgumentException("Expected a range as from-to: " + text);
+        }
+        return new int[] {parseInt(parts[0]) - 1, parseInt(parts[1])};
+    }
+
+    // Parse a number argument
+    private static int parseInt(String text) {
+        try {
+            return Integer.parseInt(text);
+        } catch(NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number: " + text);
+        }
+    }
+}
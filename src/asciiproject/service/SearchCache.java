@@ -0,0 +1,193 @@
+package asciiproject.service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import asciiproject.model.SearchResult;
+import asciiproject.model.Table;
+
+/*
+    Bounded LRU cache of search results, each valid for the table version it was computed at.
+    A result that went stale is brought up to date from the table's change journal instead of
+    being thrown away: inserted and removed rows shift the cached hits (hits of a removed row are
+    dropped), and only the rows that changed are searched again. Results are recomputed in full when the journal no longer covers the gap
+    (table cleared or too many changes) or when too many rows changed to be worth patching.
+    The cache is bounded by the hits it holds, not just by its entries: results of more than
+    MAX_ENTRY_HITS hits are not cached, and the least recently used entries are dropped once
+    all entries together hold more than MAX_CACHED_HITS.
+*/
+public class SearchCache {
+    private static final int MAX_ENTRIES = 128;
+    static final int MAX_CACHED_HITS = 1 << 16; // Hits held by all entries together
+    static final int MAX_ENTRY_HITS = MAX_CACHED_HITS / 16; // Larger results are cheaper to search again than to keep
+    private static final int MAX_PATCHED_ROWS = 256; // More changed rows than this and a full search is cheaper
+
+    // Hits of a term at a table version
+    private static class Entry {
+        final long version;
+        final List<SearchResult.Hit> hits;
+
+        Entry(long version, List<SearchResult.Hit> hits) {
+            this.version = version;
+            this.hits = hits;
+        }
+    }
+
+    // Searches a single row [row, row + 1) for the term
+    public interface RowSearcher {
+        List<SearchResult.Hit> search(String term, int row);
+    }
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); // In access order
+    private long cachedHits; // Hits held by all entries
+
+    /*
+        Get the cached result for the term at the table's current version, patching a stale one
+        with rowSearcher if possible. Returns null if the term has to be searched in full.
+        Rows must not be inserted, removed or replaced while this runs. Cells may be edited: the
+        result is stored at the version read first, so rows edited meanwhile are searched again
+        by a later get.
+    */
+    public SearchResult get(String term, Table table, RowSearcher rowSearcher) {
+        Entry entry;
+        synchronized(entries) {
+            entry = entries.get(term);
+        }
+        if(entry == null) {
+            return null;
+        }
+
+        long version = table.getVersion();
+        if(entry.version == version) {
+            return new SearchResult(term, entry.hits);
+        }
+
+        List<Table.Change> changes = table.changesSince(entry.version);
+        List<SearchResult.Hit> hits = changes != null ? patch(term, entry.hits, changes, rowSearcher) : null;
+        synchronized(entries) {
+            if(hits == null) {
+                remove(term);
+                return null;
+            }
+            store(term, new Entry(version, hits));
+        }
+        return new SearchResult(term, hits);
+    }
+
+    // Remember the result of a full search made at the given table version
+    public void put(SearchResult result, long version) {
+        synchronized(entries) {
+            store(result.getTerm(), new Entry(version, result.getHits()));
+        }
+    }
+
+    // Drop every cached result
+    public void clear() {
+        synchronized(entries) {
+            entries.clear();
+            cachedHits = 0;
+        }
+    }
+
+    // Cache an entry, or only drop the old one if it is too big, then evict down to the limits; holds the entries lock
+    private void store(String term, Entry entry) {
+        remove(term);
+        if(entry.hits.size() > MAX_ENTRY_HITS) {
+            return;
+        }
+        entries.put(term, entry);
+        cachedHits += entry.hits.size();
+
+        Iterator<Entry> eldest = entries.values().iterator();
+        while(entries.size() > MAX_ENTRIES || cachedHits > MAX_CACHED_HITS) {
+            cachedHits -= eldest.next().hits.size();
+            eldest.remove();
+        }
+    }
+
+    // Drop the entry of a term; holds the entries lock
+    private void remove(String term) {
+        Entry removed = entries.remove(term);
+        if(removed != null) {
+            cachedHits -= removed.hits.size();
+        }
+    }
+
+    // Apply the changes to the cached hits, or null if too many rows changed
+    private List<SearchResult.Hit> patch(String term, List<SearchResult.Hit> cached, List<Table.Change> changes, RowSearcher rowSearcher) {
+        // Replay the changes on the hit rows and collect the rows to search again, in current indexes
+        int[] rows = new int[cached.size()];
+        for(int h = 0; h < rows.length; h++) {
+            rows[h] = cached.get(h).getRow();
+        }
+        TreeSet<Integer> changed = new TreeSet<>();
+        for(Table.Change change : changes) {
+            int row = change.getRow();
+            if(change.getKind() == Table.ChangeKind.REMOVED) {
+                // Drop the hits of the removed row (-1) and move later rows up
+                for(int h = 0; h < rows.length; h++) {
+                    if(rows[h] == row) {
+                        rows[h] = -1;
+                    } else if(rows[h] > row) {
+                        rows[h]--;
+                    }
+                }
+                changed.remove(row);
+                changed = shift(changed, row + 1, -1);
+                continue;
+            }
+            if(change.getKind() == Table.ChangeKind.INSERTED) {
+                for(int h = 0; h < rows.length; h++) {
+                    if(rows[h] >= row) {
+                        rows[h]++;
+                    }
+                }
+                changed = shift(changed, row, 1);
+            }
+            changed.add(row);
+            if(changed.size() > MAX_PATCHED_ROWS) {
+                return null;
+            }
+        }
+
+        // Keep the hits of unchanged rows and merge in the hits of the changed rows, in [row, col] order
+        List<SearchResult.Hit> hits = new ArrayList<>(cached.size());
+        int h = 0;
+        for(int row : changed) {
+            for(; h < rows.length && rows[h] < row; h++) {
+                if(rows[h] >= 0) {
+                    hits.add(moved(cached.get(h), rows[h]));
+                }
+            }
+            // Stale hits of a changed row are replaced by searching the row again
+            while(h < rows.length && rows[h] == row) {
+                h++;
+            }
+            hits.addAll(rowSearcher.search(term, row));
+        }
+        for(; h < rows.length; h++) {
+            if(rows[h] >= 0) {
+                hits.add(moved(cached.get(h), rows[h]));
+            }
+        }
+        return hits;
+    }
+
+    // Rows with the rows at or after from moved by delta
+    private static TreeSet<Integer> shift(TreeSet<Integer> rows, int from, int delta) {
+        TreeSet<Integer> shifted = new TreeSet<>(rows.headSet(from));
+        for(int r : rows.tailSet(from)) {
+            shifted.add(r + delta);
+        }
+        return shifted;
+    }
+
+    // The hit at its current row index
+    private static SearchResult.Hit moved(SearchResult.Hit hit, int row) {
+        return hit.getRow() == row ? hit : new SearchResult.Hit(row, hit.getCol(), hit.getKeyCount(), hit.getValueCount());
+    }
+}
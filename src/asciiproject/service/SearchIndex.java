@@ -0,0 +1,309 @@
+package asciiproject.service;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import asciiproject.model.Pair;
+import asciiproject.model.Row;
+import asciiproject.model.Table;
+
+/*
+    N-gram index over the keys and values of a table, used to narrow down which cells a search has to look at.
+    Every gram of MIN_GRAM..MAX_GRAM characters maps to the rows holding it and, per row, the sorted
+    columns of the cells whose key or value contains it. Single characters are not indexed: in wide
+    rows nearly every row holds nearly every character, so they would not narrow anything down.
+    Rows are keyed by identity, so inserting or removing rows does not move any posting; changes that
+    move cells inside a row (deleting a cell, sorting) re-index that row.
+    A concurrent index (see SearchIndex(boolean)) keeps its postings in ConcurrentHashMaps and changes
+    each gram's posting inside a compute, so threads editing different rows can update it while
+    others search. Writers index new cells before publishing them and remove the old grams after
+    (addCell, then removeReplacedCell), so a search never misses a cell that is in the table.
+*/
+public class SearchIndex {
+    // Shortest and longest substring length that is indexed directly
+    private static final int MIN_GRAM = 2;
+    private static final int MAX_GRAM = 3;
+    private static final int[] NO_COLUMNS = new int[0];
+
+    // gram -> (row -> sorted columns of the cells in that row whose key or value contains the gram)
+    private final Map<String, Map<Row, int[]>> postings;
+    private final boolean concurrent;
+
+    // Constructor: an index used by one writer at a time
+    public SearchIndex() {
+        this(false);
+    }
+
+    // Constructor: a concurrent index can be updated by several threads at once, and searched meanwhile
+    public SearchIndex(boolean concurrent) {
+        this.concurrent = concurrent;
+        this.postings = concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
+    }
+
+    // Rebuild the whole index from the table
+    public void rebuild(Table table) {
+        postings.clear();
+        for(Row row : table.getRows()) {
+            addRow(row);
+        }
+    }
+
+    // Clear the index
+    public void clear() {
+        postings.clear();
+    }
+
+    // Index every cell of a newly added row
+    public void addRow(Row row) {
+        addCells(row, row.getCells());
+    }
+
+    // Remove every cell of a deleted row
+    public void removeRow(Row row) {
+        removeCells(row, row.getCells());
+    }
+
+    // Index cells of a row at their positions in the list
+    public void addCells(Row row, List<Pair> cells) {
+        for(int j = 0; j < cells.size(); j++) {
+            addCell(row, j, cells.get(j).getKey(), cells.get(j).getValue());
+        }
+    }
+
+    // Remove cells of a row indexed at their positions in the list (ex. the cells before a sort)
+    public void removeCells(Row row, List<Pair> cells) {
+        for(int j = 0; j < cells.size(); j++) {
+            removeCell(row, j, cells.get(j).getKey(), cells.get(j).getValue());
+        }
+    }
+
+    // Index a single cell of a row
+    public void addCell(Row row, int col, String key, String value) {
+        for(String gram : gramsOf(key, value)) {
+            addPosting(gram, row, col);
+        }
+    }
+
+    // Remove a single cell of a row from the index
+    public void removeCell(Row row, int col, String key, String value) {
+        for(String gram : gramsOf(key, value)) {
+            removePosting(gram, row, col);
+        }
+    }
+
+    // Update the index after the cell at col was edited, touching only the grams that changed
+    public void updateCell(Row row, int col, String oldKey, String oldValue, String newKey, String newValue) {
+        Set<String> oldGrams = gramsOf(oldKey, oldValue);
+        Set<String> newGrams = gramsOf(newKey, newValue);
+        for(String gram : oldGrams) {
+            if(!newGrams.contains(gram)) {
+                removePosting(gram, row, col);
+            }
+        }
+        for(String gram : newGrams) {
+            if(!oldGrams.contains(gram)) {
+                addPosting(gram, row, col);
+            }
+        }
+    }
+
+    // Remove the old key and value of the cell at col where they differ from the new ones; call after addCell indexed the new ones
+    public void removeReplacedCell(Row row, int col, String oldKey, String oldValue, String newKey, String newValue) {
+        Set<String> newGrams = gramsOf(newKey, newValue);
+        for(String gram : gramsOf(oldKey, oldValue)) {
+            if(!newGrams.contains(gram)) {
+                removePosting(gram, row, col);
+            }
+        }
+    }
+
+    // Remove the cells a row held before a change where they differ from the cells after it; call after addCells indexed the new ones
+    public void removeReplacedCells(Row row, List<Pair> before, List<Pair> after) {
+        for(int j = 0; j < before.size(); j++) {
+            Pair old = before.get(j);
+            if(j < after.size()) {
+                removeReplacedCell(row, j, old.getKey(), old.getValue(), after.get(j).getKey(), after.get(j).getValue());
+            } else {
+                removeCell(row, j, old.getKey(), old.getValue());
+            }
+        }
+    }
+
+    /*
+        Get the cells that may contain the search term in a key or value, as row -> sorted columns,
+        or null if the index cannot narrow the search down (terms shorter than MIN_GRAM).
+        Terms up to MAX_GRAM characters are looked up directly; for longer terms the cells of the
+        rarest MAX_GRAM-gram are intersected with those of the term's other grams.
+        Candidates still have to be verified by the caller.
+    */
+    public Map<Row, int[]> candidates(String term) {
+        if(term.length() < MIN_GRAM) {
+            return null;
+        }
+        if(term.length() <= MAX_GRAM) {
+            return cellsOf(term);
+        }
+
+        // Start from the gram held by the fewest rows
+        Set<String> grams = new HashSet<>();
+        for(int i = 0; i + MAX_GRAM <= term.length(); i++) {
+            grams.add(term.substring(i, i + MAX_GRAM));
+        }
+        String rarest = null;
+        for(String gram : grams) {
+            if(rarest == null || cellsOf(gram).size() < cellsOf(rarest).size()) {
+                rarest = gram;
+            }
+        }
+
+        Map<Row, int[]> result = new IdentityHashMap<>();
+        for(Map.Entry<Row, int[]> entry : cellsOf(rarest).entrySet()) {
+            int[] cols = entry.getValue();
+            for(String gram : grams) {
+                if(gram.equals(rarest)) {
+                    continue;
+                }
+                int[] other = cellsOf(gram).get(entry.getKey());
+                cols = other == null ? NO_COLUMNS : intersect(cols, other);
+                if(cols.length == 0) {
+                    break;
+                }
+            }
+            if(cols.length > 0) {
+                result.put(entry.getKey(), cols);
+            }
+        }
+        return result;
+    }
+
+    // Cells that may contain any of the terms, or null if one of them cannot be narrowed down
+    public Map<Row, int[]> candidates(Collection<String> terms) {
+        Map<Row, int[]> union = new IdentityHashMap<>();
+        for(String term : terms) {
+            Map<Row, int[]> cells = candidates(term);
+            if(cells == null) {
+                return null;
+            }
+            for(Map.Entry<Row, int[]> entry : cells.entrySet()) {
+                union.merge(entry.getKey(), entry.getValue(), SearchIndex::union);
+            }
+        }
+        return union;
+    }
+
+    // Cells containing a gram, or an empty map
+    private Map<Row, int[]> cellsOf(String gram) {
+        Map<Row, int[]> rows = postings.get(gram);
+        if(rows == null) {
+            return Collections.emptyMap();
+        }
+        return Collections.unmodifiableMap(rows);
+    }
+
+    // Add col to the posting of gram in row; the gram's rows are changed inside compute so a concurrent remove cannot drop them
+    private void addPosting(String gram, Row row, int col) {
+        postings.compute(gram, (g, rows) -> {
+            if(rows == null) {
+                rows = concurrent ? new ConcurrentHashMap<>() : new IdentityHashMap<>();
+            }
+            int[] cols = rows.get(row);
+            if(cols == null) {
+                rows.put(row, new int[] {col});
+                return rows;
+            }
+            int at = Arrays.binarySearch(cols, col);
+            if(at < 0) {
+                at = -at - 1;
+                int[] grown = new int[cols.length + 1];
+                System.arraycopy(cols, 0, grown, 0, at);
+                grown[at] = col;
+                System.arraycopy(cols, at, grown, at + 1, cols.length - at);
+                rows.put(row, grown);
+            }
+            return rows;
+        });
+    }
+
+    // Remove col from the posting of gram in row, and the gram once no row holds it
+    private void removePosting(String gram, Row row, int col) {
+        postings.computeIfPresent(gram, (g, rows) -> {
+            int[] cols = rows.get(row);
+            int at = cols == null ? -1 : Arrays.binarySearch(cols, col);
+            if(at < 0) {
+                return rows;
+            }
+
+            if(cols.length == 1) {
+                rows.remove(row);
+                return rows.isEmpty() ? null : rows;
+            }
+            int[] shrunk = new int[cols.length - 1];
+            System.arraycopy(cols, 0, shrunk, 0, at);
+            System.arraycopy(cols, at + 1, shrunk, at, cols.length - at - 1);
+            rows.put(row, shrunk);
+            return rows;
+        });
+    }
+
+    // Columns in both sorted arrays
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int n = 0;
+        for(int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if(a[i] < b[j]) {
+                i++;
+            } else if(a[i] > b[j]) {
+                j++;
+            } else {
+                result[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return n == result.length ? result : Arrays.copyOf(result, n);
+    }
+
+    // Columns in either sorted array
+    private static int[] union(int[] a, int[] b) {
+        int[] result = new int[a.length + b.length];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while(i < a.length || j < b.length) {
+            if(j == b.length || (i < a.length && a[i] < b[j])) {
+                result[n++] = a[i++];
+            } else if(i == a.length || b[j] < a[i]) {
+                result[n++] = b[j++];
+            } else {
+                result[n++] = a[i++];
+                j++;
+            }
+        }
+        return n == result.length ? result : Arrays.copyOf(result, n);
+    }
+
+    // Distinct grams of length MIN_GRAM..MAX_GRAM found in a key and value
+    private Set<String> gramsOf(String key, String value) {
+        Set<String> grams = new HashSet<>();
+        collectGrams(key, grams);
+        collectGrams(value, grams);
+        return grams;
+    }
+
+    // Add every substring of length MIN_GRAM..MAX_GRAM of text to grams
+    private void collectGrams(String text, Set<String> grams) {
+        for(int start = 0; start < text.length(); start++) {
+            for(int len = MIN_GRAM; len <= MAX_GRAM && start + len <= text.length(); len++) {
+                grams.add(text.substring(start, start + len));
+            }
+        }
+    }
+}
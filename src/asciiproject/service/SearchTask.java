@@ -0,0 +1,148 @@
+package asciiproject.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RecursiveTask;
+
+import asciiproject.model.Pair;
+import asciiproject.model.Row;
+import asciiproject.model.SearchResult;
+import asciiproject.model.Table;
+
+/*
+    Counts the occurrences of a term (or the matches of a CellMatcher) in the keys and values of a range of rows.
+    Run directly with compute() for a sequential scan, or through a ForkJoinPool to split the
+    rows into chunks searched in parallel; hits always come back in [row, col] order.
+    When the search index narrows the search to a few candidate rows, their positions are looked
+    up and only those rows are read; the range is walked only when candidates are dense.
+*/
+public class SearchTask extends RecursiveTask<List<SearchResult.Hit>> {
+    private static final long serialVersionUID = 1L;
+    private static final int CHUNK_CELLS = 1 << 14; // Roughly how many cells one task scans before splitting
+    private static final int CANDIDATE_RATIO = 32; // Rows of the range per candidate below which candidates are looked up instead of walking the range
+
+    // Counts the matches in a key or value
+    public interface CellMatcher {
+        int count(String text);
+    }
+
+    private final Table table;
+    private final CellMatcher matcher;
+    private final Map<Row, int[]> candidates; // Columns per row that may contain a match, or null for all cells
+    private final int from;
+    private final int to;
+    private final boolean parallel;
+
+    // Search the rows [from, to) of the table, splitting into subtasks if parallel is set
+    public SearchTask(Table table, String term, Map<Row, int[]> candidates, int from, int to, boolean parallel) {
+        this(table, text -> countOccurrences(text, term), candidates, from, to, parallel);
+    }
+
+    // Search the rows [from, to) of the table with any matcher, splitting into subtasks if parallel is set
+    public SearchTask(Table table, CellMatcher matcher, Map<Row, int[]> candidates, int from, int to, boolean parallel) {
+        this.table = table;
+        this.matcher = matcher;
+        this.candidates = candidates;
+        this.from = from;
+        this.to = to;
+        this.parallel = parallel;
+    }
+
+    @Override
+    protected List<SearchResult.Hit> compute() {
+        int[] positions = candidates != null ? candidatePositions(table, candidates, from, to) : null;
+        if(positions == null && parallel && to - from > 1 && estimatedCells() > CHUNK_CELLS) {
+            // Split in half, search the left half in this thread while the right half is forked
+            int mid = (from + to) >>> 1;
+            SearchTask right = new SearchTask(table, matcher, candidates, mid, to, true);
+            right.fork();
+            List<SearchResult.Hit> hits = new SearchTask(table, matcher, candidates, from, mid, true).compute();
+            hits.addAll(right.join());
+            return hits;
+        }
+        return scan(positions);
+    }
+
+    // Estimate the cells in the range from the width of its first row
+    private long estimatedCells() {
+        return (long) (to - from) * Math.max(1, table.getRow(from).getCells().size());
+    }
+
+    /*
+        Sorted positions in [from, to) of the candidate rows, or null if there are too many of them
+        to look up one by one (more than one per CANDIDATE_RATIO rows) and the range should be walked.
+        Few candidates are searched by one task, there is too little work to split.
+    */
+    static int[] candidatePositions(Table table, Map<Row, int[]> candidates, int from, int to) {
+        if((long) candidates.size() * CANDIDATE_RATIO > to - from) {
+            return null;
+        }
+        int[] positions = new int[candidates.size()];
+        int count = 0;
+        for(Row row : candidates.keySet()) {
+            int i = table.indexOf(row);
+            if(i >= from && i < to) {
+                positions[count++] = i;
+            }
+        }
+        positions = Arrays.copyOf(positions, count);
+        Arrays.sort(positions);
+        return positions;
+    }
+
+    // Scan the range sequentially, or only the given sorted row positions
+    private List<SearchResult.Hit> scan(int[] positions) {
+        List<SearchResult.Hit> hits = new ArrayList<>();
+
+        int count = positions != null ? positions.length : to - from;
+        for(int n = 0; n < count; n++) {
+            int i = positions != null ? positions[n] : from + n;
+            Row row = table.getRow(i);
+            if(candidates == null) {
+                List<Pair> cells = row.getCells();
+                // Iterate through all cells in the row
+                for(int j = 0; j < cells.size(); j++) {
+                    searchCell(hits, i, j, cells.get(j));
+                }
+                continue;
+            }
+
+            // Only the cells the index lists for this row can hold a match
+            int[] cols = candidates.get(row);
+            if(cols != null) {
+                List<Pair> cells = row.getCells();
+                for(int j : cols) {
+                    if(j < cells.size()) {
+                        searchCell(hits, i, j, cells.get(j));
+                    }
+                }
+            }
+        }
+        return hits;
+    }
+
+    // Count how many times the search term appears in the key and value of the cell at [i, j]
+    private void searchCell(List<SearchResult.Hit> hits, int i, int j, Pair cell) {
+        int keyCount = matcher.count(cell.getKey());
+        int valueCount = matcher.count(cell.getValue());
+
+        if(keyCount > 0 || valueCount > 0) {
+            hits.add(new SearchResult.Hit(i, j, keyCount, valueCount));
+        }
+    }
+
+    // Helper method to count substring occurrences (overlapping matches are counted)
+    public static int countOccurrences(String text, String search) {
+        int count = 0;
+        int index = 0;
+
+        // Loop to find all occurrences
+        while((index = text.indexOf(search, index)) != -1) {
+            count++;
+            index++; 
+        }
+        return count;
+    }
+}
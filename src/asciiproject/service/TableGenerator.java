@@ -0,0 +1,152 @@
+package asciiproject.service;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import asciiproject.model.Pair;
+import asciiproject.model.Row;
+import asciiproject.model.Table;
+
+/*
+    Generates rows of random ASCII keys and values (3 characters unless told otherwise).
+    Characters are written straight into a char buffer per row and rows are generated in parallel.
+    With a seed every row draws from its own SplittableRandom derived from the seed and the row's
+    stream number, so the same calls give the same table no matter how the work is split over threads.
+    Without a seed ThreadLocalRandom is used.
+*/
+public class TableGenerator {
+    private static final int DEFAULT_STRING_LENGTH = 3; // Length of generated keys and values
+    private static final int FIRST_CHAR = 33;   // '!'
+    private static final int CHAR_RANGE = 94;   // '!' to '~'
+    private static final int FILE_BATCH_ROWS = 1024; // Rows generated in parallel before they are written
+
+    private final Long seed; // null for unseeded tables
+    private final int stringLength; // Length of every generated key and value
+    private final AtomicLong nextStream = new AtomicLong(); // Stream number of the next generated row
+
+    // Generator for tables that differ every time
+    public TableGenerator() {
+        this.seed = null;
+        this.stringLength = DEFAULT_STRING_LENGTH;
+    }
+
+    // Generator for reproducible tables
+    public TableGenerator(long seed) {
+        this(seed, DEFAULT_STRING_LENGTH);
+    }
+
+    // Generator for reproducible tables with keys and values of the given length
+    public TableGenerator(long seed, int stringLength) {
+        if(stringLength <= 0) {
+            throw new IllegalArgumentException("Key/value length must be greater than 0");
+        }
+        this.seed = seed;
+        this.stringLength = stringLength;
+    }
+
+    // Generate one row
+    public List<Pair> generateRow(int cols) {
+        return generateRow(nextStream.getAndIncrement(), cols);
+    }
+
+    // Generate rows x cols in parallel, in order
+    public Row[] generateRows(int rows, int cols) {
+        long firstStream = nextStream.getAndAdd(rows);
+        Row[] generated = new Row[rows];
+        IntStream.range(0, rows).parallel().forEach(i -> generated[i] = new Row(generateRow(firstStream + i, cols)));
+        return generated;
+    }
+
+    // Clear the table and fill it with rows x cols random cells
+    public void fill(Table table, int rows, int cols) {
+        table.clear();
+        for(Row row : generateRows(rows, cols)) {
+            table.addRow(row);
+        }
+    }
+
+    // Stream rows x cols random cells to a text table file, holding only one batch of rows in memory
+    public void writeTextFile(File file, int rows, int cols) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            for(int start = 0; start < rows; start += FILE_BATCH_ROWS) {
+                int count = Math.min(FILE_BATCH_ROWS, rows - start);
+                long firstStream = nextStream.getAndAdd(count);
+
+                // Format the batch in parallel, then write it in order
+                char[][] lines = new char[count][];
+                IntStream.range(0, count).parallel().forEach(i -> lines[i] = formatRow(firstStream + i, cols));
+                for(char[] line : lines) {
+                    writer.write(line);
+                    writer.newLine();
+                }
+            }
+        }
+    }
+
+    // Generate the cells of the row drawn from the given stream
+    private List<Pair> generateRow(long stream, int cols) {
+        char[] buffer = new char[cols * 2 * stringLength];
+        fillRandom(buffer, 0, buffer.length, stream);
+
+        List<Pair> cells = new ArrayList<>(cols);
+        for(int j = 0; j < cols; j++) {
+            int offset = j * 2 * stringLength;
+            cells.add(new Pair(new String(buffer, offset, stringLength), new String(buffer, offset + stringLength, stringLength)));
+        }
+        return cells;
+    }
+
+    // Format the row drawn from the given stream as a line of the text format, like Row.toString()
+    private char[] formatRow(long stream, int cols) {
+        char[] line = new char[cols * (2 * stringLength + 6)]; // "(key , value) " per cell
+        char[] random = new char[cols * 2 * stringLength];
+        fillRandom(random, 0, random.length, stream);
+
+        int pos = 0;
+        for(int j = 0; j < cols; j++) {
+            int offset = j * 2 * stringLength;
+            line[pos++] = '(';
+            System.arraycopy(random, offset, line, pos, stringLength);
+            pos += stringLength;
+            line[pos++] = ' ';
+            line[pos++] = ',';
+            line[pos++] = ' ';
+            System.arraycopy(random, offset + stringLength, line, pos, stringLength);
+            pos += stringLength;
+            line[pos++] = ')';
+            line[pos++] = ' ';
+        }
+        return line;
+    }
+
+    // Scramble a number (MurmurHash3 finalizer) so neighbouring streams get unrelated seeds
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+
+    // Fill buffer[from, to) with random printable ASCII characters
+    private void fillRandom(char[] buffer, int from, int to, long stream) {
+        if(seed == null) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for(int i = from; i < to; i++) {
+                buffer[i] = (char) (FIRST_CHAR + random.nextInt(CHAR_RANGE));
+            }
+        } else {
+            SplittableRandom random = new SplittableRandom(mix(seed ^ mix(stream)));
+            for(int i = from; i < to; i++) {
+                buffer[i] = (char) (FIRST_CHAR + random.nextInt(CHAR_RANGE));
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package asciiproject.service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import asciiproject.model.Pair;
+
+/*
+    Hand-written parser for one line of the text table format: (key , value) (key , value) ...
+    It accepts exactly what the old regex \((.*?)\s,\s(.*?)\)\s*(?=\(|$) accepted on a trimmed line:
+    the key ends at the first "<space>,<space>" and the value ends at the first ')' that is
+    followed only by whitespace and then '(' or the end of the line.
+    It works on a byte range so it can be fed from a read buffer or a mapped file without copying lines.
+*/
+public class TableParser {
+    private TableParser() {}
+
+    // Parse the cells of the line stored in buffer[start, end)
+    public static List<Pair> parseLine(ByteBuffer buffer, int start, int end) {
+        List<Pair> cells = new ArrayList<>();
+
+        // Trim like String.trim()
+        while(start < end && (buffer.get(start) & 0xFF) <= ' ') {
+            start++;
+        }
+        while(end > start && (buffer.get(end - 1) & 0xFF) <= ' ') {
+            end--;
+        }
+
+        int pos = start;
+        while(pos < end) {
+            // Find the opening '('
+            int open = indexOf(buffer, (byte) '(', pos, end);
+            if(open < 0) {
+                break;
+            }
+
+            // Key ends at the first whitespace-comma-whitespace separator
+            int separator = -1;
+            for(int i = open + 1; i + 2 < end; i++) {
+                if(isSpace(buffer.get(i)) && buffer.get(i + 1) == ',' && isSpace(buffer.get(i + 2))) {
+                    separator = i;
+                    break;
+                }
+            }
+            if(separator < 0) {
+                break; // No later '(' can have a separator either
+            }
+
+            // Value ends at the first ')' followed by optional whitespace and then '(' or end of line
+            int close = -1;
+            int next = end;
+            for(int i = separator + 3; i < end; i++) {
+                if(buffer.get(i) != ')') {
+                    continue;
+                }
+                int after = i + 1;
+                while(after < end && isSpace(buffer.get(after))) {
+                    after++;
+                }
+                if(after == end || buffer.get(after) == '(') {
+                    close = i;
+                    next = after;
+                    break;
+                }
+            }
+            if(close < 0) {
+                pos = open + 1; // Same as the regex retrying from the next character
+                continue;
+            }
+
+            cells.add(new Pair(decode(buffer, open + 1, separator), decode(buffer, separator + 3, close)));
+            pos = next;
+        }
+
+        return cells;
+    }
+
+    // Index of the first byte b in buffer[from, to), or -1
+    private static int indexOf(ByteBuffer buffer, byte b, int from, int to) {
+        for(int i = from; i < to; i++) {
+            if(buffer.get(i) == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Same characters as the regex \s
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == 0x0B || b == '\f' || b == '\r';
+    }
+
+    // Decode buffer[from, to) as UTF-8
+    private static String decode(ByteBuffer buffer, int from, int to) {
+        if(buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + from, to - from, StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[to - from];
+        buffer.get(from, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,177 @@
+package asciiproject.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+
+import asciiproject.model.Pair;
+import asciiproject.model.SearchResult;
+import asciiproject.model.Table;
+
+/*
+    Renders tables and search results to the console through one large buffered writer that is
+    flushed once per call, instead of a println (and flush) per line on System.out.
+    Output can be limited to a row range and a maximum number of lines.
+    Rows are written one at a time as they are read from the table, so memory use does not grow
+    with the number of rows printed.
+*/
+public class TableRenderer {
+    public static final int DEFAULT_LIMIT = 1000; // Lines printed when no limit is given
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // Print the rows [from, to) of the table, at most limit of them
+    public void printRows(Table table, int from, int to, int limit) {
+        Writer out = open();
+        try {
+            out.write("Table Contents:\n");
+            int end = Math.min(to, from + limit);
+            for(int i = from; i < end; i++) {
+                writeRow(out, table.getRow(i).getCells());
+            }
+            if(end < to) {
+                out.write("... " + (to - end) + " more row/s not shown (print a range to see them)\n");
+            }
+            out.write('\n');
+            out.flush();
+        } catch (IOException e) {
+            System.out.println("Error printing table: " + e.getMessage());
+        }
+    }
+
+    /*
+        Print the rows [from, to) of the table, at most limit of them, as a bordered grid:
+            +-----------+-----------+
+            | key , val | key , val |
+            +-----------+-----------+
+        Column widths come from one pass over the printed rows that only keeps the widest
+        cell of each column, then a second pass streams the padded rows out.
+    */
+    public void printGrid(Table table, int from, int to, int limit) {
+        int end = Math.min(to, from + limit);
+        int[] widths = columnWidths(table, from, end);
+        Writer out = open();
+        try {
+            out.write("Table Contents:\n");
+            writeBorder(out, widths);
+            for(int i = from; i < end; i++) {
+                List<Pair> cells = table.getRow(i).getCells();
+                out.write('|');
+                for(int j = 0; j < widths.length; j++) {
+                    out.write(' ');
+                    int length = 0;
+                    if(j < cells.size()) {
+                        Pair cell = cells.get(j);
+                        out.write(cell.getKey());
+                        out.write(" , ");
+                        out.write(cell.getValue());
+                        length = cellWidth(cell);
+                    }
+                    pad(out, ' ', widths[j] - length);
+                    out.write(" |");
+                }
+                out.write('\n');
+            }
+            writeBorder(out, widths);
+            if(end < to) {
+                out.write("... " + (to - end) + " more row/s not shown (print a range to see them)\n");
+            }
+            out.write('\n');
+            out.flush();
+        } catch (IOException e) {
+            System.out.println("Error printing table: " + e.getMessage());
+        }
+    }
+
+    // Widest "key , value" of every column over rows [from, to)
+    private int[] columnWidths(Table table, int from, int to) {
+        int[] widths = new int[0];
+        for(int i = from; i < to; i++) {
+            List<Pair> cells = table.getRow(i).getCells();
+            if(cells.size() > widths.length) {
+                widths = Arrays.copyOf(widths, cells.size());
+            }
+            for(int j = 0; j < cells.size(); j++) {
+                widths[j] = Math.max(widths[j], cellWidth(cells.get(j)));
+            }
+        }
+        return widths;
+    }
+
+    // Printed width of a cell
+    private static int cellWidth(Pair cell) {
+        return cell.getKey().length() + 3 + cell.getValue().length();
+    }
+
+    // Write a +-----+-----+ line
+    private void writeBorder(Writer out, int[] widths) throws IOException {
+        out.write('+');
+        for(int width : widths) {
+            pad(out, '-', width + 2);
+            out.write('+');
+        }
+        out.write('\n');
+    }
+
+    // Write count copies of c
+    private static void pad(Writer out, char c, int count) throws IOException {
+        for(int i = 0; i < count; i++) {
+            out.write(c);
+        }
+    }
+
+    // Print the hits of a search, at most limit of them
+    public void printSearchResult(SearchResult result, int limit) {
+        String term = result.getTerm();
+        Writer out = open();
+        try {
+            int shown = Math.min(limit, result.size());
+            for(int h = 0; h < shown; h++) {
+                SearchResult.Hit hit = result.getHits().get(h);
+                int keyCount = hit.getKeyCount();
+                int valueCount = hit.getValueCount();
+
+                if(keyCount > 0 && valueCount > 0) {
+                    out.write(keyCount + " <" + term + "> occurrence/s at key and "
+                        + valueCount + " <" + term + "> occurrence/s at value ");
+                } else if(keyCount > 0) {
+                    out.write(keyCount + " <" + term + "> occurrence/s at key ");
+                } else {
+                    out.write(valueCount + " <" + term + "> occurrence/s at value ");
+                }
+                out.write("of [" + hit.getRow() + "," + hit.getCol() + "]\n");
+            }
+
+            // If no occurrences found
+            if(result.isEmpty()) {
+                out.write("No occurrences found for \"" + term + "\". \n"); // No occurrences found for "<input>"
+            } else if(shown < result.size()) {
+                out.write("... " + (result.size() - shown) + " more cell/s with <" + term + "> not shown\n");
+            }
+            out.write('\n');
+            out.flush();
+        } catch (IOException e) {
+            System.out.println("Error printing search result: " + e.getMessage());
+        }
+    }
+
+    // Write a row as (key1 , value1) (key2 , value2) ... like Row.toString()
+    private void writeRow(Writer out, List<Pair> cells) throws IOException {
+        for(Pair cell : cells) {
+            out.write('(');
+            out.write(cell.getKey());
+            out.write(" , ");
+            out.write(cell.getValue());
+            out.write(") ");
+        }
+        out.write('\n');
+    }
+
+    // Buffered writer over the current System.out; it is flushed, not closed, so System.out stays open
+    private Writer open() {
+        return new BufferedWriter(new OutputStreamWriter(System.out, Charset.defaultCharset()), BUFFER_SIZE);
+    }
+}
@@ -1,27 +1,89 @@
 package asciiproject.service;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Scanner;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Random;
-
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import asciiproject.model.ColumnarTable;
+import asciiproject.model.ConcurrentTable;
+import asciiproject.model.PagedTable;
 import asciiproject.model.Pair;
 import asciiproject.model.Row;
+import asciiproject.model.SearchResult;
 import asciiproject.model.Table;
+import asciiproject.util.BinaryTableFile;
 import asciiproject.util.FileHandler;
 
 // TableService to service a table 
 public class TableService {
-	private Table table;
+	private volatile Table table;
     private String fileName;
-	private static final Random RANDOM = new Random();
+    private volatile SearchIndex searchIndex; // N-gram index used by search, null for paged tables
+    private volatile KeyIndex keyIndex; // Key -> (row, col) index used for key uniqueness, null for paged tables
+    private int pagedWindowRows; // Rows kept in memory when opening .tbl files as paged tables, 0 to load fully
+    private boolean parallelSearch; // Split searches over the common ForkJoinPool
+    private TableGenerator generator = new TableGenerator(); // Random cells for new tables and rows
+    private final TableRenderer renderer = new TableRenderer(); // Buffered console output
+    private final SearchCache searchCache = new SearchCache(); // Recent search results, kept valid per table version
+    private boolean gridLayout; // Print tables as an aligned grid instead of (key , value) tokens
+    private ChangeLog changeLog; // Mutation log, null unless change log mode is enabled
+    private ScheduledExecutorService compactor; // Folds the change log into the table file
+    private final BackgroundSaver saver = new BackgroundSaver(new BackgroundSaver.SaveTask() {
+        @Override
+        public void write(boolean force) throws IOException {
+            writeSnapshot(force);
+        }
+
+        @Override
+        public void force() throws IOException {
+            FileHandler.force(FileHandler.getFilePath(fileName));
+        }
+    }, SAVE_DELAY_MILLIS); // Writes the table file off the editing threads
+    private boolean deferSaves; // Batch mode: mark the table as changed instead of saving, see flush()
+    private final AtomicBoolean closed = new AtomicBoolean(); // Set by the first close(), later calls do nothing
+    private volatile boolean unsavedChanges; // Changes not yet written because saves are deferred
+
+    /*
+        Changes to the rows of the table (inserting, deleting, reordering or replacing them) hold the
+        structure write lock; searches, saves and exports hold its read lock. Changes to the cells of
+        a row hold the write lock too, except on a ConcurrentTable: there they share the read lock and
+        hold the row's lock instead (see changeCells), so edits of different rows and searches run at
+        the same time. Every change holds the read lock of persistLock while it is applied and
+        logged; compact() holds its write lock, so no change is in flight when the log is emptied.
+        persistLock is always taken before structureLock.
+    */
+    private final ReadWriteLock structureLock = new ReentrantReadWriteLock();
+    private final ReadWriteLock persistLock = new ReentrantReadWriteLock();
+    private static final long MAPPED_LOAD_THRESHOLD = 64L << 20; // Files at least this big are loaded through mapLines
+    private static final int COMPACT_THRESHOLD = 1000; // Change log records that trigger a compaction
+    private static final long COMPACT_INTERVAL_SECONDS = 30; // How often the change log size is checked
+    private static final long SAVE_DELAY_MILLIS = 500; // Edits within this window share one save
 
     // Initializes a new TableService with an empty table and a given file name.
     public TableService(String fileName) {
         this.table = new Table();
         this.fileName = fileName;
+        this.searchIndex = new SearchIndex();
+        this.keyIndex = new KeyIndex();
     }
 
     // Getter Method for table
@@ -29,30 +91,168 @@ public class TableService {
         return table;
     }
 
-	// Generate a random 3 character ASCII String
-	private String generateRandomAscii() {
-		StringBuilder randomASCII = new StringBuilder(3);
-		
-        // Generate 3 random ASCII characters
-		for(int i = 0; i < 3; i++) {
-			int ascii = RANDOM.nextInt(94) + 33;
-			randomASCII.append((char) ascii);
-		}
-		
-		return randomASCII.toString();
-	}
-
-    // Generate a row with random key-value pairs
-    private List<Pair> generateRandomKeyPair(int numCells) {
-        List<Pair> keyPair = new ArrayList<>();
-        
-        // Generate key-value pairs
-        for(int i = 0; i < numCells; i++) {
-            String key = generateRandomAscii();
-            String value = generateRandomAscii();
-            keyPair.add(new Pair(key, value));
-        }
-        return keyPair;
+    /*
+        Switch to change log mode: mutations are appended to <file>.log instead of rewriting the
+        whole table file, and a background task folds the log into the table file once it grows.
+        Call before loading the table so the log is replayed on top of the file.
+    */
+    public void enableChangeLog() {
+        if(changeLog != null) {
+            return;
+        }
+        changeLog = new ChangeLog(fileName);
+
+        compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "change-log-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactor.scheduleWithFixedDelay(() -> {
+            if(changeLog.size() >= COMPACT_THRESHOLD) {
+                compact();
+            }
+        }, COMPACT_INTERVAL_SECONDS, COMPACT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    // Print tables as an aligned, bordered grid
+    public void setGridLayout(boolean gridLayout) {
+        this.gridLayout = gridLayout;
+    }
+
+    // Search rows in parallel chunks on the common ForkJoinPool
+    public void setParallelSearch(boolean parallelSearch) {
+        this.parallelSearch = parallelSearch;
+    }
+
+    // Store cells in a shared byte arena (ColumnarTable) instead of a Pair object per cell; call before loading
+    public void useColumnarStorage() {
+        structureLock.writeLock().lock();
+        try {
+            if(!(table instanceof ColumnarTable)) {
+                ColumnarTable columnar = new ColumnarTable();
+                for(Row row : table.getRows()) {
+                    columnar.addRow(row);
+                }
+                table = columnar;
+                searchCache.clear();
+                if(searchIndex != null) {
+                    searchIndex = new SearchIndex();
+                    keyIndex = new KeyIndex();
+                }
+                rebuildIndexes();
+            }
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    // Store rows in a ConcurrentTable so several threads can search and edit the table at once; call before loading
+    public void useConcurrentTable() {
+        structureLock.writeLock().lock();
+        try {
+            if(table instanceof ConcurrentTable) {
+                return;
+            }
+            ConcurrentTable concurrent = new ConcurrentTable();
+            for(Row row : table.getRows()) {
+                concurrent.addRow(row);
+            }
+            table = concurrent;
+            searchCache.clear();
+            if(searchIndex != null) {
+                // Edits of different rows update the indexes at the same time
+                searchIndex = new SearchIndex(true);
+                keyIndex = new KeyIndex(true);
+            }
+            rebuildIndexes();
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    /*
+        Open .tbl table files as paged tables that keep at most windowRows decoded rows in memory.
+        Paged tables are meant to be bigger than the heap, so they are not indexed: search and
+        key uniqueness checks scan the table instead.
+    */
+    public void enablePaging(int windowRows) {
+        this.pagedWindowRows = windowRows;
+    }
+
+    // Write the whole table to its file and empty the change log once the file is on the disk
+    public void compact() {
+        persistLock.writeLock().lock(); // No change may be logged between the snapshot and clearing the log
+        try {
+            saveTable();
+            if(changeLog != null) {
+                saver.await(true); // The log records may only go once the file holding them survives a crash
+                if(!reportSaveFailure()) {
+                    changeLog.clear();
+                }
+            }
+        } finally {
+            persistLock.writeLock().unlock();
+        }
+    }
+
+    /*
+        Batch mode: changes are no longer written to the table file one by one, flush() writes them
+        all at once. Changes are still appended to the change log if it is enabled, and changes
+        to many rows at once (sorting the table, importing) are still written immediately then,
+        because later log records refer to the rows by their new positions.
+    */
+    public void setDeferredSaves(boolean deferSaves) {
+        this.deferSaves = deferSaves;
+    }
+
+    // Write the changes made since the last flush when saves are deferred
+    public void flush() {
+        if(unsavedChanges) {
+            unsavedChanges = false;
+            compact();
+        }
+    }
+
+    /*
+        Compact any pending changes, finish the saves and force them to the disk, stop the background tasks and close a paged table's file.
+        Only the first call does this, so a shutdown hook can close the service again after an explicit close.
+    */
+    public void close() {
+        if(!closed.compareAndSet(false, true)) {
+            return;
+        }
+        flush();
+        if(changeLog != null) {
+            compactor.shutdownNow();
+            if(changeLog.size() > 0) {
+                compact();
+            }
+            changeLog.close();
+        }
+        saver.close();
+        reportSaveFailure();
+        closePagedTable();
+    }
+
+    // Wait until the saves requested so far are written, and flushed to the disk (fsync) if force is set
+    public void waitForSaves(boolean force) {
+        saver.await(force);
+        reportSaveFailure();
+    }
+
+    // Print the error of a background save that failed, on the calling thread; returns true if one did
+    private boolean reportSaveFailure() {
+        Exception failure = saver.takeFailure();
+        if(failure == null) {
+            return false;
+        }
+        System.out.println("Error writing to file: " + failure.getMessage());
+        return true;
+    }
+
+    // Use a fixed seed so generated tables are reproducible, or null for random tables
+    public void setGeneratorSeed(Long seed) {
+        this.generator = seed != null ? new TableGenerator(seed) : new TableGenerator();
     }
 
     // Helper method to parse user input in the format rowxcol
@@ -102,95 +302,508 @@ public class TableService {
         return dimensions;
     }
 
-    // Helper method to count substring occurrences
-    private int countOccurrences(String text, String search) {
-        int count = 0;
-        int index = 0;
-
-        // Loop to find all occurrences
-        while((index = text.indexOf(search, index)) != -1) {
-            count++;
-            index++; 
-        }
-        return count;
-    }
-
     // Create a new table with user inputted dimensions
     public void createNewTable(Scanner sc) {
         int[] dims = getTableDimensions(sc);
         int rows = dims[0];
         int cols = dims[1];
 
-        table.clear();
-        // Generate new table row by row
-        for (int i = 0; i < rows; i++) {
-            table.addRow(new Row(generateRandomKeyPair(cols)));
+        generate(rows, cols);
+    }
+
+    // Replace the table with rows x cols random key-value pairs and save it
+    public void generate(int rows, int cols) {
+        if(rows <= 0 || cols <= 0) {
+            throw new IllegalArgumentException("Table dimensions must be greater than 0");
         }
 
-        saveTable();
+        changeTable(() -> {
+            generator.fill(table, rows, cols);
+            rebuildIndexes();
+            return true;
+        });
     }
 
-    // Saves the current table state to a file
+    // Stream rows x cols random cells straight to a text file in the folder without building a table
+    public void generateToFile(String targetFileName, int rows, int cols) {
+        if(rows <= 0 || cols <= 0) {
+            throw new IllegalArgumentException("Table dimensions must be greater than 0");
+        }
+
+        targetFileName = FileHandler.ensureTxtExtension(targetFileName);
+        if(BinaryTableFile.isBinary(targetFileName)) {
+            throw new IllegalArgumentException("Generated tables are streamed as text, export them to .tbl afterwards");
+        }
+
+        File file = FileHandler.getFilePath(targetFileName);
+        try {
+            generator.writeTextFile(file, rows, cols);
+            System.out.println("Saved to " + file.getPath());
+        } catch (IOException e) {
+            System.out.println("Error writing to file: " + e.getMessage());
+        }
+    }
+
+    /*
+        Save the current table state to its file in the background and return immediately.
+        Saves requested within SAVE_DELAY_MILLIS, or while one is being written, are written once;
+        see waitForSaves to wait for them. A save that failed in the background is reported here,
+        by the next save, or by waitForSaves or close.
+    */
     public void saveTable() {
-        List<String> lines = new ArrayList<>();
+        reportSaveFailure();
+        saver.request();
+    }
+
+    /*
+        Write the table file from the background saver, replacing it atomically.
+        Text files are rendered under the structure read lock and written after it is released, so
+        edits only wait for the rendering. Binary files are streamed row by row under the read
+        lock; a paged table writes its pinned rows back and pages from the new file afterwards.
+        Cells of a ConcurrentTable may be edited meanwhile, every row is written as one snapshot.
+        Nothing is printed here: a failure is thrown to the saver and reported by the caller's thread.
+    */
+    private void writeSnapshot(boolean force) throws IOException {
+        File file = FileHandler.getFilePath(fileName);
+        if (BinaryTableFile.isBinary(fileName)) {
+            structureLock.readLock().lock();
+            try {
+                if (table instanceof PagedTable) {
+                    ((PagedTable) table).save(force);
+                } else {
+                    BinaryTableFile.write(file, table.getRows(), force);
+                }
+            } finally {
+                structureLock.readLock().unlock();
+            }
+        } else {
+            List<String> lines;
+            structureLock.readLock().lock();
+            try {
+                lines = renderLines();
+            } finally {
+                structureLock.readLock().unlock();
+            }
+            FileHandler.writeText(file, lines, force);
+        }
+    }
+
+    // Write the table to a file in the folder, in binary if it is a .tbl file and as text otherwise
+    private void writeTableFile(String targetFileName) {
+        if (BinaryTableFile.isBinary(targetFileName)) {
+            File file = FileHandler.getFilePath(targetFileName);
+            try {
+                BinaryTableFile.write(file, table.getRows());
+                System.out.println("Saved to " + file.getPath());
+            } catch (IOException e) {
+                System.out.println("Error writing to file: " + e.getMessage());
+            }
+            return;
+        }
+        FileHandler.saveText(targetFileName, renderLines());
+    }
+
+    // Every row as a line of the text format
+    private List<String> renderLines() {
+        List<String> lines = new ArrayList<>(table.size());
         for (Row row : table.getRows()) {
             lines.add(row.toString());
         }
-        FileHandler.saveText(fileName, lines);
+        return lines;
     }
 
-    // Load table data from file
-    public boolean loadTableFromFile() {
-        List<String> lines = FileHandler.readText(fileName);
+    // Read the rows of a table file in the folder into the table, in binary if it is a .tbl file and as text otherwise
+    private boolean readTableFile(String sourceFileName) {
         table.clear();
 
-        /*  
-            Regex pattern to match key-value pairs in the format: (key , value)
-            \(             match literal '('
-            (.*?)          capture the key — any characters (non-greedy)
-            \s,\s          match a comma with one space on each side
-            (.*?)          capture the value — any characters (non-greedy)
-            \)             match literal ')'
-            \s*            match optional whitespace after ')'
-            (?=\(|$)       ensure the match is followed by '(' or end of string
-        */
-        Pattern pattern = Pattern.compile("\\((.*?)\\s,\\s(.*?)\\)\\s*(?=\\(|$)");
-
-        // Parse each line to extract key-value pairs
-        for (String line : lines) {
-            Matcher matcher = pattern.matcher(line); // Create matcher for the line
-            List<Pair> cells = new ArrayList<>();
-            while (matcher.find()) { // Find all key-value pairs in the line
-                cells.add(new Pair(matcher.group(1), matcher.group(2))); // Add Pair to cells list
+        if (BinaryTableFile.isBinary(sourceFileName)) {
+            try {
+                for (Row row : BinaryTableFile.readAll(FileHandler.getFilePath(sourceFileName))) {
+                    table.addRow(row);
+                }
+                return true;
+            } catch (IOException e) {
+                System.out.println("Error reading file: " + e.getMessage());
+                return false;
             }
+        }
+
+        // Parse each line straight from the read buffer and add its cells as a row
+        FileHandler.LineHandler parser = (buffer, start, end) -> {
+            List<Pair> cells = TableParser.parseLine(buffer, start, end);
             if (!cells.isEmpty()) {
                 table.addRow(new Row(cells)); // Add new Row to table if cells were found
             }
+        };
+
+        // Large files are scanned in place through memory-mapped windows, small ones are streamed
+        if (FileHandler.getFilePath(sourceFileName).length() >= MAPPED_LOAD_THRESHOLD) {
+            return FileHandler.mapLines(sourceFileName, parser);
+        }
+        return FileHandler.readLines(sourceFileName, parser);
+    }
+
+    // Export the table to another file in the folder; a .tbl name writes the binary format, anything else text
+    public void exportTable(String targetFileName) {
+        structureLock.readLock().lock();
+        try {
+            writeTableFile(FileHandler.ensureTxtExtension(targetFileName));
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    // Replace the table with the contents of another file in the folder (text or .tbl) and save it
+    public boolean importTable(String sourceFileName) {
+        String source = FileHandler.ensureTxtExtension(sourceFileName);
+        if (!FileHandler.getFilePath(source).exists()) {
+            System.out.println("File not found: " + source + "\n");
+            return false;
+        }
+
+        return changeTable(() -> {
+            if (!readTableFile(source) || table.isEmpty()) {
+                System.out.println("No valid table data found in " + source + ".\n");
+                rebuildIndexes();
+                return false;
+            }
+            rebuildIndexes();
+            System.out.println("Imported " + table.size() + " row/s from " + source + ".\n");
+            return true;
+        });
+    }
+
+    // Load table data from file
+    public boolean loadTableFromFile() {
+        persistLock.readLock().lock();
+        try {
+            structureLock.writeLock().lock(); // A background save must not see the table half read
+            try {
+                return readAndIndexTable();
+            } finally {
+                structureLock.writeLock().unlock();
+            }
+        } finally {
+            persistLock.readLock().unlock();
+        }
+    }
+
+    // Read the table file, replay the change log and rebuild the indexes
+    private boolean readAndIndexTable() {
+        boolean read;
+        if (pagedWindowRows > 0 && BinaryTableFile.isBinary(fileName)) {
+            read = openPagedTable();
+        } else {
+            read = readTableFile(fileName);
+        }
+
+        // Replay the changes made since the file was last written
+        if (read && changeLog != null) {
+            replayChangeLog();
         }
 
         // If table is empty after loading, indicate failure
-        if (table.isEmpty()) {
+        if (!read || table.isEmpty()) {
+            if (searchIndex != null) {
+                searchIndex.clear();
+                keyIndex.clear();
+            }
             System.out.println("No valid table data found in file.\n");
             return false;
         }
 
+        rebuildIndexes();
         System.out.println("File loaded successfully.\n");
-        saveTable();
         return true;
     }
 
+    // Open the binary table file as a paged table and drop the in-memory indexes
+    private boolean openPagedTable() {
+        try {
+            PagedTable paged = new PagedTable(FileHandler.getFilePath(fileName), pagedWindowRows);
+            closePagedTable();
+            table = paged;
+            searchCache.clear();
+            searchIndex = null;
+            keyIndex = null;
+            return true;
+        } catch (IOException e) {
+            System.out.println("Error reading file: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Close the backing file of a paged table
+    private void closePagedTable() {
+        if (table instanceof PagedTable) {
+            try {
+                ((PagedTable) table).close();
+            } catch (IOException e) {
+                System.out.println("Error closing file: " + e.getMessage());
+            }
+        }
+    }
+
+
+    // Apply the records of the change log to the freshly loaded table
+    private void replayChangeLog() {
+        changeLog.replay(new ChangeLog.Replayer() {
+            @Override
+            public void edit(int row, int col, String key, String value) {
+                table.setCell(row, col, key, value);
+            }
+
+            @Override
+            public void insert(int index, List<Pair> cells) {
+                table.addRowAt(index, new Row(cells));
+            }
+
+            @Override
+            public void sort(int row, String order) {
+                table.updateCells(row, cells -> RowSorter.sort(cells, order));
+            }
+
+            @Override
+            public void deleteRow(int row) {
+                table.removeRow(row);
+            }
+
+            @Override
+            public void deleteCell(int row, int col) {
+                table.updateCells(row, cells -> cells.remove(col));
+            }
+
+            @Override
+            public void batch(MutationBatch batch) {
+                batch.applyTo(table); // Undoes what it applied and throws if an operation fails
+            }
+        });
+
+        if(changeLog.size() > 0) {
+            System.out.println("Replayed " + changeLog.size() + " change/s from the change log.");
+        }
+    }
+
+    // Persist a cell edit
+    private void persistEdit(int row, int col, String key, String value) {
+        if(changeLog != null) {
+            changeLog.appendEdit(row, col, key, value);
+        } else if(deferSaves) {
+            unsavedChanges = true;
+        } else {
+            saveTable();
+        }
+    }
+
+    // Persist a row insert
+    private void persistInsert(int index, List<Pair> cells) {
+        if(changeLog != null) {
+            changeLog.appendInsert(index, cells);
+        } else if(deferSaves) {
+            unsavedChanges = true;
+        } else {
+            saveTable();
+        }
+    }
+
+    // Persist a row sort
+    private void persistSort(int row, String order) {
+        if(changeLog != null) {
+            changeLog.appendSort(row, order);
+        } else if(deferSaves) {
+            unsavedChanges = true;
+        } else {
+            saveTable();
+        }
+    }
+
+    // Persist a row delete
+    private void persistDeleteRow(int row) {
+        if(changeLog != null) {
+            changeLog.appendDeleteRow(row);
+        } else if(deferSaves) {
+            unsavedChanges = true;
+        } else {
+            saveTable();
+        }
+    }
+
+    // Persist a cell delete
+    private void persistDeleteCell(int row, int col) {
+        if(changeLog != null) {
+            changeLog.appendDeleteCell(row, col);
+        } else if(deferSaves) {
+            unsavedChanges = true;
+        } else {
+            saveTable();
+        }
+    }
+
+    // Persist a change to many rows by writing the whole table
+    private void persistAll() {
+        if(deferSaves && changeLog == null) {
+            unsavedChanges = true;
+        } else {
+            compact();
+        }
+    }
+
+    // Run a change to the rows of the table that logs its own records; searches, saves and other changes wait for it
+    private void changeRows(Runnable change) {
+        persistLock.readLock().lock();
+        try {
+            structureLock.writeLock().lock();
+            try {
+                change.run();
+            } finally {
+                structureLock.writeLock().unlock();
+            }
+        } finally {
+            persistLock.readLock().unlock();
+        }
+    }
+
+    /*
+        Run a change to many rows and, if it returns true, write the whole table. No other change
+        starts until the table is written, because later log records refer to rows by the positions
+        the change gave them.
+    */
+    private boolean changeTable(BooleanSupplier change) {
+        persistLock.writeLock().lock();
+        try {
+            boolean changed;
+            structureLock.writeLock().lock();
+            try {
+                changed = change.getAsBoolean();
+            } finally {
+                structureLock.writeLock().unlock();
+            }
+            if(changed) {
+                persistAll(); // The save reads the table under the structure read lock
+            }
+            return changed;
+        } finally {
+            persistLock.writeLock().unlock();
+        }
+    }
+
+    /*
+        Run a change to the cells of the row at index, and log it, with the row passed to change.
+        On a ConcurrentTable only the writers of the same row (or of a row sharing its lock) wait for
+        each other, searches and edits of other rows go on; other tables are changed in place, so
+        there the change waits for and holds off everything else like changeRows.
+        Throws IllegalArgumentException with the given message if there is no row at index.
+    */
+    private void changeCells(int index, String outOfBounds, Consumer<Row> change) {
+        persistLock.readLock().lock();
+        try {
+            Lock lock = lockCells();
+            try {
+                if(index < 0 || index >= table.size()) {
+                    throw new IllegalArgumentException(outOfBounds);
+                }
+                Row stored = table.getRow(index);
+                if(!(table instanceof ConcurrentTable)) {
+                    change.accept(stored);
+                    return;
+                }
+                Lock rowLock = ((ConcurrentTable) table).rowLock(stored);
+                rowLock.lock();
+                try {
+                    change.accept(stored);
+                } finally {
+                    rowLock.unlock();
+                }
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            persistLock.readLock().unlock();
+        }
+    }
+
+    // Take the structure lock cell changes need: shared on a ConcurrentTable, exclusive otherwise
+    private Lock lockCells() {
+        Lock shared = structureLock.readLock();
+        shared.lock();
+        if(table instanceof ConcurrentTable) {
+            return shared; // The table cannot be replaced while the read lock is held
+        }
+        shared.unlock();
+        structureLock.writeLock().lock();
+        return structureLock.writeLock();
+    }
+
+    /*
+        Change the cells of a row held by changeCells and index it again. The cells after the change
+        are indexed before they are published and the cells before it are removed afterwards, so a
+        search or key check on another thread never misses a cell that is in the table.
+        update is applied twice, to a copy and to the row, and must give the same cells both times.
+    */
+    private void updateRow(int index, Row stored, Consumer<List<Pair>> update) {
+        if(searchIndex == null) {
+            table.updateCells(index, update);
+            return;
+        }
+        List<Pair> before = new ArrayList<>(stored.getCells());
+        List<Pair> after = new ArrayList<>(before);
+        update.accept(after);
+
+        searchIndex.addCells(stored, after);
+        keyIndex.addCells(stored, after);
+        table.updateCells(index, update);
+        searchIndex.removeReplacedCells(stored, before, after);
+        keyIndex.removeCells(stored, before);
+    }
+
+    // Rebuild the search and key indexes from the current table; the caller holds the structure write lock
+    private void rebuildIndexes() {
+        if(searchIndex == null) {
+            return;
+        }
+        searchIndex.rebuild(table);
+        keyIndex.rebuild(table);
+    }
+
+    // Give the cell at [row, col] a key no other cell has, as one step so two writers cannot both take it; returns false if the key is used
+    private boolean claimKey(String key, Row row, int col) {
+        if(keyIndex != null) {
+            return keyIndex.claim(key, row, col);
+        }
+        return lookupByKey(key) == null;
+    }
 
     // Check if the key already exists in the table
     private boolean isKeyUnique(String key) {
-        // Iterate through all rows and cells to check for key existence
-        for(Row row : table.getRows()) {
-            for(Pair pair : row.getCells()) {
-                if(pair.getKey().equals(key)) {
-                    return false; // Key already exists
+        if(keyIndex != null) {
+            return !keyIndex.contains(key);
+        }
+        return lookupByKey(key) == null;
+    }
+
+    // Get the [row, col] of the cell with the given key, or null if no cell has it
+    public int[] lookupByKey(String key) {
+        structureLock.readLock().lock();
+        try {
+            if(keyIndex != null) {
+                // The index holds the row itself, its current position is looked up in the table
+                KeyIndex.Cell cell = keyIndex.lookup(key);
+                return cell == null ? null : new int[] {table.indexOf(cell.getRow()), cell.getCol()};
+            }
+
+            // No index, iterate through all rows and cells
+            for(int i = 0; i < table.size(); i++) {
+                List<Pair> cells = table.getRow(i).getCells();
+                for(int j = 0; j < cells.size(); j++) {
+                    if(cells.get(j).getKey().equals(key)) {
+                        return new int[] {i, j};
+                    }
                 }
             }
+            return null;
+        } finally {
+            structureLock.readLock().unlock();
         }
-        return true;
     }
 
     // Search for character/s in both key and value of each cell
@@ -210,54 +823,160 @@ public class TableService {
             System.out.println("Invalid input. Please enter at least one character.\n");
             return;
         }
-        boolean foundAny = false;
+        renderer.printSearchResult(search(input), TableRenderer.DEFAULT_LIMIT);
+    }
 
-        // Iterate through all rows and cells
-        for(int i = 0; i < table.size(); i++) {
-            Row row = table.getRow(i);
-            List<Pair> cells = row.getCells();
-
-            // Iterate through all cells in the row
-            for(int j = 0; j < cells.size(); j++) {
-                Pair cell = cells.get(j);
-                String key = cell.getKey();
-                String value = cell.getValue();
-
-                // Count how many times the search term appears in key and value
-                int keyCount = countOccurrences(key, input);
-                int valueCount = countOccurrences(value, input);
-
-                // If found in key or value or both
-                if(keyCount > 0 || valueCount > 0) {
-                    foundAny = true;
-
-                    // Print occurrences found
-                    if(keyCount > 0 && valueCount > 0) {
-                        System.out.println(
-                            keyCount + " <" + input + "> occurrence/s at key and " 
-                            + valueCount + " <" + input + "> occurrence/s at value "
-                            + "of [" + i + "," + j + "]"
-                        );
-                    } else if(keyCount > 0) {
-                        System.out.println(
-                            keyCount + " <" + input + "> occurrence/s at key "
-                            + "of [" + i + "," + j + "]"
-                        );
-                    } else if(valueCount > 0) {
-                        System.out.println(
-                            valueCount + " <" + input + "> occurrence/s at value "
-                            + "of [" + i + "," + j + "]"
-                        );
-                    }
-                }
+    // Forget every cached search result
+    public void clearSearchCache() {
+        searchCache.clear();
+    }
+
+    // Find every cell whose key or value contains the input, in [row, col] order
+    public SearchResult search(String input) {
+        // Row changes wait for the search; on a ConcurrentTable cells may be edited meanwhile, new cells are indexed before they are published
+        structureLock.readLock().lock();
+        try {
+            // Repeated terms are answered from the cache, searching only the rows changed since
+            SearchResult cached = searchCache.get(input, table,
+                    (term, row) -> new SearchTask(table, term, null, row, row + 1, false).invoke());
+            if(cached != null) {
+                return cached;
+            }
+            long version = table.getVersion();
+
+            // Only cells the index reports as possibly containing the input need to be checked
+            Map<Row, int[]> candidates = searchIndex != null ? searchIndex.candidates(input) : null;
+            SearchResult result;
+            if(candidates != null && candidates.isEmpty()) {
+                result = new SearchResult(input, new ArrayList<>());
+            } else {
+                // Paged tables read rows one at a time under their window lock, so they are always searched sequentially
+                boolean parallel = parallelSearch && !(table instanceof PagedTable) && table.size() > 1;
+                SearchTask task = new SearchTask(table, input, candidates, 0, table.size(), parallel);
+                List<SearchResult.Hit> hits = parallel ? ForkJoinPool.commonPool().invoke(task) : task.invoke();
+                result = new SearchResult(input, hits);
             }
+            searchCache.put(result, version);
+            return result;
+        } finally {
+            structureLock.readLock().unlock();
         }
+    }
 
-        // If no occurrences found
-        if(!foundAny) {
-            System.out.println("No occurrences found for \"" + input + "\". \n"); // No occurrences found for "<input>"
-        } else {
-            System.out.println();
+    // Search for several terms at once, entered one per line
+    public void searchAll(Scanner sc) {
+        // Check if table is empty
+        if(table.isEmpty()) {
+            System.out.println("Table is empty. Please load or generate a table first.\n");
+            return;
+        }
+
+        // Read terms until a blank line
+        List<String> terms = new ArrayList<>();
+        System.out.println("Enter the character/s to search, one term per line, and a blank line to finish:");
+        String input;
+        while(!(input = sc.nextLine()).isEmpty()) {
+            terms.add(input);
+        }
+        if(terms.isEmpty()) {
+            System.out.println("Invalid input. Please enter at least one term.\n");
+            return;
+        }
+
+        for(SearchResult result : searchAll(terms)) {
+            renderer.printSearchResult(result, TableRenderer.DEFAULT_LIMIT);
+        }
+    }
+
+    /*
+        Search for every term in one pass over the table, with the same counts as search(term) per term.
+        Returns one result per term, in the order of terms.
+    */
+    public List<SearchResult> searchAll(List<String> terms) {
+        // The automaton is built over the distinct terms
+        Map<String, Integer> ids = new LinkedHashMap<>();
+        for(String term : terms) {
+            if(term.isEmpty()) {
+                throw new IllegalArgumentException("Search terms must not be empty");
+            }
+            ids.putIfAbsent(term, ids.size());
+        }
+        MultiPatternMatcher matcher = new MultiPatternMatcher(new ArrayList<>(ids.keySet()));
+
+        List<List<SearchResult.Hit>> hits;
+        structureLock.readLock().lock();
+        try {
+            // Only cells that may contain at least one of the terms need to be checked
+            Map<Row, int[]> candidates = searchIndex != null ? searchIndex.candidates(ids.keySet()) : null;
+
+            boolean parallel = parallelSearch && !(table instanceof PagedTable) && table.size() > 1;
+            MultiSearchTask task = new MultiSearchTask(table, matcher, candidates, 0, table.size(), parallel);
+            hits = parallel ? ForkJoinPool.commonPool().invoke(task) : task.invoke();
+        } finally {
+            structureLock.readLock().unlock();
+        }
+
+        List<SearchResult> results = new ArrayList<>(terms.size());
+        for(String term : terms) {
+            results.add(new SearchResult(term, hits.get(ids.get(term))));
+        }
+        return results;
+    }
+
+    // Search keys and values with a regex or wildcard pattern
+    public void searchPattern(Scanner sc) {
+        // Check if table is empty
+        if(table.isEmpty()) {
+            System.out.println("Table is empty. Please load or generate a table first.\n");
+            return;
+        }
+
+        System.out.print("Search with a regex or a wildcard pattern? (regex/wildcard): ");
+        String mode = sc.nextLine().trim().toLowerCase();
+        if(!mode.equals("regex") && !mode.equals("wildcard")) {
+            System.out.println("Invalid choice. Enter 'regex' or 'wildcard'.\n");
+            return;
+        }
+
+        System.out.print(mode.equals("regex")
+                ? "Enter the regex (ex. ^a.?b): "
+                : "Enter the wildcard pattern, * for any characters and ? for one (ex. *x*): ");
+        String input = sc.nextLine();
+        if(input.isEmpty()) {
+            System.out.println("Invalid input. Please enter a pattern.\n");
+            return;
+        }
+
+        try {
+            renderer.printSearchResult(searchPattern(input, mode.equals("wildcard")), TableRenderer.DEFAULT_LIMIT);
+        } catch(IllegalArgumentException e) {
+            System.out.println("Invalid pattern: " + e.getMessage() + "\n");
+        }
+    }
+
+    /*
+        Find every cell whose key or value matches a regex (counting every match) or a wildcard
+        pattern (matching the whole key or value), in [row, col] order.
+        Throws IllegalArgumentException for an invalid regex.
+    */
+    public SearchResult searchPattern(String query, boolean wildcard) {
+        PatternQuery pattern = PatternQuery.compile(query, wildcard);
+
+        structureLock.readLock().lock();
+        try {
+            // Every match contains the literal, so only cells the index reports for it need to be checked
+            Map<Row, int[]> candidates = searchIndex != null && pattern.getLiteral() != null
+                    ? searchIndex.candidates(pattern.getLiteral()) : null;
+            if(candidates != null && candidates.isEmpty()) {
+                return new SearchResult(query, new ArrayList<>());
+            }
+
+            boolean parallel = parallelSearch && !(table instanceof PagedTable) && table.size() > 1;
+            SearchTask task = new SearchTask(table, pattern, candidates, 0, table.size(), parallel);
+            List<SearchResult.Hit> hits = parallel ? ForkJoinPool.commonPool().invoke(task) : task.invoke();
+            return new SearchResult(query, hits);
+        } finally {
+            structureLock.readLock().unlock();
         }
     }
 
@@ -343,14 +1062,48 @@ public class TableService {
         }
 
         // Update the cell
-        cell.setKey(newKey);
-        cell.setValue(newValue);
+        edit(row, col, newKey, newValue);
 
         System.out.println("\nCell updated:");
         System.out.println("Old value -> (" + oldKey + " , " + oldValue + ")");
         System.out.println("New value -> (" + newKey + " , " + newValue + ")\n");
+    }
 
-        saveTable();
+    /*
+        Set the key and value of the cell at [row, col]; a null key or value keeps the current one.
+        Throws IllegalArgumentException if the cell does not exist or the new key is used by another cell.
+    */
+    public void edit(int row, int col, String key, String value) {
+        String outOfBounds = "Cell [" + row + "," + col + "] is out of bounds";
+        changeCells(row, outOfBounds, stored -> {
+            if(col < 0 || col >= stored.getCells().size()) {
+                throw new IllegalArgumentException(outOfBounds);
+            }
+
+            Pair cell = stored.getCells().get(col);
+            String oldKey = cell.getKey();
+            String oldValue = cell.getValue();
+            String newKey = key != null ? key : oldKey;
+            String newValue = value != null ? value : oldValue;
+
+            // The new key is taken before the cell changes, so a writer of another row cannot take it too
+            boolean keyChanged = !newKey.equals(oldKey);
+            if(keyChanged && !claimKey(newKey, stored, col)) {
+                throw new IllegalArgumentException("Key already exists: " + newKey);
+            }
+
+            if(searchIndex != null) {
+                searchIndex.addCell(stored, col, newKey, newValue);
+            }
+            table.setCell(row, col, newKey, newValue);
+            if(searchIndex != null) {
+                searchIndex.removeReplacedCell(stored, col, oldKey, oldValue, newKey, newValue);
+                if(keyChanged) {
+                    keyIndex.remove(oldKey, stored, col);
+                }
+            }
+            persistEdit(row, col, newKey, newValue);
+        });
     }
 
 
@@ -402,20 +1155,294 @@ public class TableService {
             }
         }
 
-        // Generate new row
-        List<Pair> newCells = generateRandomKeyPair(numCells);
-
-        // Insert new row at specified position
-        Row newRow = new Row(newCells);
-        table.addRowAt(insertRow, newRow);
+        // Generate new row and insert it at specified position
+        insertRandomRow(insertRow, numCells);
 
         System.out.println("\nNew row added successfully!\n");
-        saveTable();
         printTable();
         sc.nextLine(); // Clear newline
     }
 
-    // Sort by unicode value a specific row based on user input
+    // Insert a row with the given cells before the row at index (index == size appends)
+    public void insertRow(int index, List<Pair> cells) {
+        changeRows(() -> {
+            if(index < 0 || index > table.size()) {
+                throw new IllegalArgumentException("Row index " + index + " is out of bounds");
+            }
+            if(cells.isEmpty()) {
+                throw new IllegalArgumentException("A row needs at least one cell");
+            }
+
+            // The table gets its own cells, a caller changing its Pairs later must not change the table behind the indexes
+            List<Pair> copies = new ArrayList<>(cells.size());
+            for(Pair cell : cells) {
+                copies.add(new Pair(cell.getKey(), cell.getValue()));
+            }
+            table.addRowAt(index, new Row(copies));
+            if(searchIndex != null) {
+                // Use the row as stored, a ColumnarTable or ConcurrentTable keeps its own copy
+                searchIndex.addRow(table.getRow(index));
+                keyIndex.addRow(table.getRow(index));
+            }
+            persistInsert(index, cells);
+        });
+    }
+
+    // Insert a row of random cells before the row at index
+    public void insertRandomRow(int index, int cells) {
+        insertRow(index, randomRow(cells));
+    }
+
+    // Random cells for a new row
+    public List<Pair> randomRow(int cells) {
+        if(cells <= 0) {
+            throw new IllegalArgumentException("A row needs at least one cell");
+        }
+        return generator.generateRow(cells);
+    }
+
+    // Delete a row chosen by the user
+    public void deleteRow(Scanner sc) {
+        // Check if table is empty
+        if(table.isEmpty()) {
+            System.out.println("Table is empty. Please load or generate a table first.\n");
+            return;
+        }
+
+        int row = -1;
+        boolean validRow = false;
+
+        // Get the row number to delete
+        while(!validRow) {
+            System.out.print("Enter the row number to delete (1-" + table.size() + "): ");
+            try {
+                row = Integer.parseInt(sc.nextLine().trim());
+                if(row >= 1 && row <= table.size()) {
+                    validRow = true;
+                } else {
+                    System.out.println("Row number out of range. Try again.");
+                }
+            } catch(NumberFormatException e) {
+                System.out.println("Invalid input. Please enter a numeric value.");
+            }
+        }
+
+        deleteRow(row - 1);
+
+        System.out.println("\nRow " + row + " deleted.\n");
+        printTable();
+    }
+
+    // Delete the row at index, shifting the rows after it up. Throws IllegalArgumentException if it does not exist.
+    public void deleteRow(int index) {
+        changeRows(() -> {
+            if(index < 0 || index >= table.size()) {
+                throw new IllegalArgumentException("Row index " + index + " is out of bounds");
+            }
+
+            Row removed = table.removeRow(index);
+            if(searchIndex != null) {
+                searchIndex.removeRow(removed);
+                keyIndex.removeRow(removed);
+            }
+            persistDeleteRow(index);
+        });
+    }
+
+    // Delete a cell chosen by the user
+    public void deleteCell(Scanner sc) {
+        // Check if table is empty
+        if(table.isEmpty()) {
+            System.out.println("Table is empty. Please load or generate a table first.\n");
+            return;
+        }
+
+        int row = 0;
+        int col = 0;
+        boolean validIndex = false;
+
+        // Get valid cell index from user
+        while(!validIndex) {
+            System.out.print("Enter cell index to delete (rowxcol, ex. 0x0): ");
+            String input = sc.nextLine().trim();
+
+            // Parse input
+            int[] parsed = parseRowColInput(input);
+            row = parsed[0];
+            col = parsed[1];
+
+            // Validate input range
+            if(row >= 0 && col >= 0 && row < table.size() && col < table.getRow(row).getCells().size()) {
+                validIndex = true;
+            } else {
+                System.out.println("Invalid format or index out of bounds. Use rowxcol (e.g., 0x0).\n");
+            }
+        }
+
+        Pair cell = table.getRow(row).getCells().get(col);
+        String oldKey = cell.getKey();
+        String oldValue = cell.getValue();
+        try {
+            deleteCell(row, col);
+        } catch(IllegalArgumentException e) {
+            System.out.println(e.getMessage() + "\n");
+            return;
+        }
+
+        System.out.println("\nCell deleted -> (" + oldKey + " , " + oldValue + ")\n");
+        printTable();
+    }
+
+    /*
+        Delete the cell at [row, col], shifting the cells after it left.
+        Throws IllegalArgumentException if the cell does not exist or is the only cell of its row.
+    */
+    public void deleteCell(int row, int col) {
+        String outOfBounds = "Cell [" + row + "," + col + "] is out of bounds";
+        changeCells(row, outOfBounds, stored -> {
+            int size = stored.getCells().size();
+            if(col < 0 || col >= size) {
+                throw new IllegalArgumentException(outOfBounds);
+            }
+            if(size == 1) {
+                throw new IllegalArgumentException("Row " + row + " has only one cell, delete the row instead");
+            }
+
+            // Cells after col move left, the row is indexed again at the new positions
+            updateRow(row, stored, cells -> cells.remove(col));
+            persistDeleteCell(row, col);
+        });
+    }
+
+    /*
+        Apply every operation of the batch, or none of them.
+        The operations are applied to the table first; the keys they introduce are then checked in
+        one pass against the key index, the indexes are updated and the batch is persisted once:
+        as a begin ... commit group of change log records, replayed only as a whole, or by
+        writing the table file when there is no change log.
+        Throws IllegalArgumentException naming the failed operation or the duplicate key, the table
+        is left unchanged.
+    */
+    public void apply(MutationBatch batch) {
+        if(batch.isEmpty()) {
+            return;
+        }
+
+        Runnable change = () -> {
+            List<MutationBatch.Applied> applied = batch.applyTo(table);
+            String duplicate = findDuplicateKey(applied);
+            if(duplicate != null) {
+                batch.undo(table, applied);
+                throw new IllegalArgumentException("Key already exists: " + duplicate);
+            }
+            updateIndexes(applied);
+            if(changeLog != null) {
+                changeLog.appendBatch(applied);
+            }
+        };
+        if(changeLog != null) {
+            changeRows(change);
+        } else {
+            changeTable(() -> {
+                change.run();
+                return true;
+            });
+        }
+    }
+
+    /*
+        A key that edits or inserted rows of the batch gave to a cell and that is now held by more
+        than one cell, or null. Counts are the key index's counts from before the batch plus the keys
+        the batch added and minus those it removed, so a key freed by one operation can be taken by
+        another. Keys are read from the cells recorded at apply time, not from the table's rows.
+    */
+    private String findDuplicateKey(List<MutationBatch.Applied> applied) {
+        Map<String, Integer> delta = new HashMap<>();
+        Set<String> addedKeys = new LinkedHashSet<>();
+        for(MutationBatch.Applied a : applied) {
+            switch(a.kind) {
+                case EDIT:
+                    if(!a.newKey.equals(a.oldKey)) {
+                        delta.merge(a.oldKey, -1, Integer::sum);
+                        delta.merge(a.newKey, 1, Integer::sum);
+                        addedKeys.add(a.newKey);
+                    }
+                    break;
+                case INSERT:
+                    for(Pair cell : a.cells) {
+                        delta.merge(cell.getKey(), 1, Integer::sum);
+                        addedKeys.add(cell.getKey());
+                    }
+                    break;
+                case DELETE_ROW:
+                    a.cells.forEach(cell -> delta.merge(cell.getKey(), -1, Integer::sum));
+                    break;
+                case DELETE_CELL:
+                    delta.merge(a.oldKey, -1, Integer::sum);
+                    break;
+            }
+        }
+        if(addedKeys.isEmpty()) {
+            return null;
+        }
+
+        if(keyIndex != null) {
+            for(String key : addedKeys) {
+                if(keyIndex.count(key) + delta.get(key) > 1) {
+                    return key;
+                }
+            }
+            return null;
+        }
+
+        // No index, count the added keys in one pass over the changed table
+        Map<String, Integer> counts = new HashMap<>();
+        for(int i = 0; i < table.size(); i++) {
+            for(Pair cell : table.getRow(i).getCells()) {
+                if(addedKeys.contains(cell.getKey()) && counts.merge(cell.getKey(), 1, Integer::sum) > 1) {
+                    return cell.getKey();
+                }
+            }
+        }
+        return null;
+    }
+
+    // Bring the indexes up to date with applied batch operations
+    private void updateIndexes(List<MutationBatch.Applied> applied) {
+        if(searchIndex == null) {
+            return;
+        }
+
+        // Operations are replayed in order, each with the cells of its row as they were at that point
+        for(MutationBatch.Applied a : applied) {
+            switch(a.kind) {
+                case EDIT:
+                    searchIndex.updateCell(a.stored, a.col, a.oldKey, a.oldValue, a.newKey, a.newValue);
+                    keyIndex.remove(a.oldKey, a.stored, a.col);
+                    keyIndex.put(a.newKey, a.stored, a.col);
+                    break;
+                case INSERT:
+                    searchIndex.addCells(a.stored, a.cells);
+                    keyIndex.addCells(a.stored, a.cells);
+                    break;
+                case DELETE_ROW:
+                    searchIndex.removeCells(a.stored, a.cells);
+                    keyIndex.removeCells(a.stored, a.cells);
+                    break;
+                case DELETE_CELL:
+                    // Cells after the deleted one moved left
+                    List<Pair> after = new ArrayList<>(a.cells);
+                    after.remove(a.col);
+                    searchIndex.removeCells(a.stored, a.cells);
+                    searchIndex.addCells(a.stored, after);
+                    keyIndex.removeCells(a.stored, a.cells);
+                    keyIndex.addCells(a.stored, after);
+                    break;
+            }
+        }
+    }
+
+    // Sort by unicode value a specific row, a range of rows or all rows based on user input
     public void sortRow(Scanner sc) {
         // Check if table is empty
         if(table.isEmpty()) {
@@ -423,19 +1450,30 @@ public class TableService {
             return;
         }
 
-        int rowIndex = -1;
-        String order = null;
+        int from = -1;
+        int to = -1;
 
-        // Ask for row number
+        // Ask for row number, range or all
         boolean validRow = false;
         while(!validRow) {
-            System.out.print("Enter the row number to sort (1-" + table.size() + "): ");
-            String input = sc.nextLine().trim();
+            System.out.print("Enter the row number to sort (1-" + table.size() + "), a range (ex. 2-5) or 'all': ");
+            String input = sc.nextLine().trim().toLowerCase();
 
             // Validate row number input
             try {
-                rowIndex = Integer.parseInt(input) - 1; 
-                if(rowIndex >= 0 && rowIndex < table.size()) {
+                if(input.equals("all")) {
+                    from = 0;
+                    to = table.size();
+                } else if(input.contains("-")) {
+                    String[] parts = input.split("-");
+                    from = Integer.parseInt(parts[0].trim()) - 1;
+                    to = parts.length == 2 ? Integer.parseInt(parts[1].trim()) : -1;
+                } else {
+                    from = Integer.parseInt(input) - 1;
+                    to = from + 1;
+                }
+
+                if(from >= 0 && from < to && to <= table.size()) {
                     validRow = true;
                 } else {
                     System.out.println("Row number out of range. Try again.");
@@ -445,7 +1483,60 @@ public class TableService {
             }
         }
 
-        // Ask for sort order
+        String order = readSortOrder(sc);
+
+        if(to - from == 1) {
+            sortRow(from, order);
+            System.out.println("\nRow " + (from + 1) + " sorted in " + order.toUpperCase() + " order.\n");
+        } else {
+            try {
+                sortRows(from, to, order);
+            } catch(IllegalArgumentException e) {
+                System.out.println(e.getMessage() + "\n");
+                return;
+            }
+            System.out.println("\nRows " + (from + 1) + "-" + to + " sorted in " + order.toUpperCase() + " order.\n");
+        }
+
+        // Print updated table
+        printTable();
+    }
+
+    // Reorder the rows by the cell in a column chosen by the user
+    public void sortTableByColumn(Scanner sc) {
+        // Check if table is empty
+        if(table.isEmpty()) {
+            System.out.println("No data to sort. Please load or generate a table first.\n");
+            return;
+        }
+
+        int col = -1;
+        boolean validCol = false;
+        while(!validCol) {
+            System.out.print("Enter the column number to order the rows by (1 or more): ");
+            String input = sc.nextLine().trim();
+            try {
+                col = Integer.parseInt(input) - 1;
+                if(col >= 0) {
+                    validCol = true;
+                } else {
+                    System.out.println("Column number out of range. Try again.");
+                }
+            } catch(NumberFormatException e) {
+                System.out.println("Invalid input. Please enter a numeric value.");
+            }
+        }
+
+        String order = readSortOrder(sc);
+        sortTableByColumn(col, order);
+
+        System.out.println("\nRows ordered by column " + (col + 1) + " in " + order.toUpperCase() + " order.\n");
+        printTable();
+    }
+
+    // Ask for a sort order until asc or desc is entered
+    private String readSortOrder(Scanner sc) {
+        String order = null;
         boolean validOrder = false;
         while(!validOrder) {
             System.out.print("Sort order <asc/desc>: ");
@@ -458,26 +1549,115 @@ public class TableService {
                 System.out.println("Invalid order. Please enter only 'asc' or 'desc'.");
             }
         }
+        return order;
+    }
+
+    // Sort the cells of the row at index by the unicode order of key + value; order is "asc" or "desc"
+    public void sortRow(int index, String order) {
+        if(!order.equals("asc") && !order.equals("desc")) {
+            throw new IllegalArgumentException("Sort order must be 'asc' or 'desc'");
+        }
 
-        // Get the row to sort
-        Row selectedRow = table.getRow(rowIndex);
-        List<Pair> cells = selectedRow.getCells();
+        changeCells(index, "Row index " + index + " is out of bounds", stored -> {
+            // Cells change columns, the row is indexed again at the new positions; the sort is stable, so sorting the copy gives the same order
+            updateRow(index, stored, cells -> RowSorter.sort(cells, order));
+            persistSort(index, order);
+        });
+    }
 
-        // Make a final copy for use in sort
-        final String sortOrder = order;
+    /*
+        Sort the cells of every row in [from, to) by the unicode order of key + value.
+        Rows are sorted in parallel on the common ForkJoinPool and the table is written once at the end.
+        A paged table pins every row it changes until it is written, so it sorts at most its window of rows at once.
+    */
+    public void sortRows(int from, int to, String order) {
+        boolean descending = parseSortOrder(order);
+
+        changeTable(() -> {
+            if(from < 0 || from > to || to > table.size()) {
+                throw new IllegalArgumentException("Row range " + from + "-" + to + " is out of bounds");
+            }
+            if(table instanceof PagedTable && to - from > ((PagedTable) table).getWindowSize()) {
+                throw new IllegalArgumentException("Paged mode sorts the cells of at most " + ((PagedTable) table).getWindowSize()
+                        + " rows at once, every sorted row stays in memory until the table is saved; sort a smaller range or open the table without --paged");
+            }
 
-        // Concatenate key and value and compare based on ASCII Unicode order
-        cells.sort((p1, p2) -> {
-            String c1 = p1.getKey() + p1.getValue();
-            String c2 = p2.getKey() + p2.getValue();
-            return sortOrder.equals("asc") ? c1.compareTo(c2) : c2.compareTo(c1); 
+            // Paged tables load and pin rows under one lock, so they are sorted one by one
+            IntStream rows = IntStream.range(from, to);
+            if(!(table instanceof PagedTable)) {
+                rows = rows.parallel();
+            }
+            rows.forEach(i -> table.updateCells(i, cells -> RowSorter.sort(cells, descending, false)));
+            rebuildIndexes(); // Cells of every row may have changed columns
+            return true;
         });
+    }
 
-        System.out.println("\nRow " + (rowIndex + 1) + " sorted in " + order.toUpperCase() + " order.\n");
+    // Sort the cells of every row
+    public void sortAllRows(String order) {
+        sortRows(0, table.size(), order);
+    }
 
-        // Save changes and print updated table
-        saveTable();
-        printTable();
+    /*
+        Reorder the rows by the unicode order of key + value of their cell in column col.
+        Rows that are too short to have that column keep their relative order after the others.
+        The table is written once at the end. A paged table only moves its row references, so no
+        row is pinned in memory.
+    */
+    public void sortTableByColumn(int col, String order) {
+        if(col < 0) {
+            throw new IllegalArgumentException("Column index " + col + " is out of bounds");
+        }
+        boolean descending = parseSortOrder(order);
+
+        changeTable(() -> {
+            // Read the sort cell of every row once; rows are kept only when they are in memory anyway
+            boolean paged = table instanceof PagedTable;
+            int size = table.size();
+            Row[] rows = paged ? null : new Row[size];
+            String[] keys = new String[size];
+            String[] values = new String[size];
+            Integer[] positions = new Integer[size];
+            for(int i = 0; i < size; i++) {
+                Row row = table.getRow(i);
+                if(!paged) {
+                    rows[i] = row;
+                }
+                List<Pair> cells = row.getCells();
+                if(col < cells.size()) {
+                    keys[i] = cells.get(col).getKey();
+                    values[i] = cells.get(col).getValue();
+                }
+                positions[i] = i;
+            }
+
+            // Rows without the column go last, the others by key + value
+            Arrays.parallelSort(positions, (a, b) -> {
+                if(keys[a] == null || keys[b] == null) {
+                    return keys[a] == null ? (keys[b] == null ? 0 : 1) : -1;
+                }
+                int compared = RowSorter.compareConcatenated(keys[a], values[a], keys[b], values[b]);
+                return descending ? -compared : compared;
+            });
+
+            if(paged) {
+                ((PagedTable) table).reorder(Arrays.stream(positions).mapToInt(Integer::intValue).toArray());
+                return true;
+            }
+            // Both indexes hold rows, not positions, so reordering rows leaves them as they are
+            for(int i = 0; i < size; i++) {
+                table.setRow(i, rows[positions[i]]);
+            }
+            return true;
+        });
+    }
+
+    // Check a sort order and return true for descending
+    private boolean parseSortOrder(String order) {
+        if(!order.equals("asc") && !order.equals("desc")) {
+            throw new IllegalArgumentException("Sort order must be 'asc' or 'desc'");
+        }
+        return order.equals("desc");
     }
 
     // Reset table with new dimensions and new key-value pairs
@@ -493,32 +1673,89 @@ public class TableService {
         int rows = tableDimensions[0];
         int cols = tableDimensions[1];
 
-        table.clear();
-        
-        // Generate new table row by row
-        for(int i = 0; i < rows; i++) {
-            List<Pair> cells = generateRandomKeyPair(cols);
-            table.addRow(new Row(cells));
+        generate(rows, cols);
+        printTable();
+    }
+	
+    // Export the table to a file named by the user
+    public void exportTable(Scanner sc) {
+        // Check if table is empty
+        if(table.isEmpty()) {
+            System.out.println("Table is empty. Please load or generate a table first.\n");
+            return;
+        }
+
+        System.out.print("Enter the file to export to (.tbl for binary, otherwise text): ");
+        String target = sc.nextLine().trim();
+        if(target.isEmpty()) {
+            System.out.println("Invalid input. Please enter a filename.\n");
+            return;
         }
 
-        saveTable();
+        exportTable(target);
+        System.out.println();
+    }
+
+    // Import the table from a file named by the user
+    public void importTable(Scanner sc) {
+        System.out.print("Enter the file to import from (.tbl for binary, otherwise text): ");
+        String source = sc.nextLine().trim();
+        if(source.isEmpty()) {
+            System.out.println("Invalid input. Please enter a filename.\n");
+            return;
+        }
+
+        importTable(source);
         printTable();
     }
 	
-	// Print the table 
+    // Print a range of rows chosen by the user
+    public void printTable(Scanner sc) {
+        // Check if table is empty
+        if(table.isEmpty()) {
+            System.out.println("Table is empty or not loaded.\n");
+            return;
+        }
+
+        System.out.print("Enter the rows to print (ex. 1-50), or leave blank for the first " + TableRenderer.DEFAULT_LIMIT + ": ");
+        String input = sc.nextLine().trim();
+        if(input.isEmpty()) {
+            printTable();
+            return;
+        }
+
+        // Validate the range
+        try {
+            String[] parts = input.split("-");
+            int from = Integer.parseInt(parts[0].trim()) - 1;
+            int to = parts.length == 2 ? Integer.parseInt(parts[1].trim()) : from + 1;
+            if(parts.length > 2 || from < 0 || from >= to || to > table.size()) {
+                System.out.println("Row range out of bounds (1-" + table.size() + ").\n");
+                return;
+            }
+            printTable(from, to, to - from);
+        } catch(NumberFormatException e) {
+            System.out.println("Invalid input. Please enter a row number or range.\n");
+        }
+    }
+
+	// Print the table (the first TableRenderer.DEFAULT_LIMIT rows)
     public void printTable() {
+        printTable(0, table.size(), TableRenderer.DEFAULT_LIMIT);
+    }
+
+    // Print at most limit rows of [from, to)
+    public void printTable(int from, int to, int limit) {
         // Check if table is empty
         if(table.isEmpty()) {
             System.out.println("Table is empty or not loaded.\n");
             return;
         }
 
-        System.out.println("Table Contents:");
-        
-        // Print each row of the table
-        for(Row row : table.getRows()) {
-            System.out.println(row.toString());
+        if(gridLayout) {
+            renderer.printGrid(table, from, to, limit);
+        } else {
+            renderer.printRows(table, from, to, limit);
         }
-        System.out.println();
     }
-}
\ No newline at end of file
+}
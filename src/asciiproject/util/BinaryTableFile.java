@@ -0,0 +1,230 @@
+package asciiproject.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import asciiproject.model.Pair;
+import asciiproject.model.Row;
+
+/*
+    Binary table file format (.tbl), all numbers big-endian:
+        header  int magic, int version, int rowCount
+        rows    per row: int cellCount, then per cell: int keyLength, key bytes, int valueLength, value bytes
+        footer  long offset of every row, then long offset of the footer itself
+    Keys and values are UTF-8. The footer lets a single row be read without parsing the rows before it.
+*/
+public class BinaryTableFile {
+    public static final String EXTENSION = ".tbl";
+
+    private static final int MAGIC = 0x41544231; // "ATB1"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+    private static final int FOOTER_CHUNK_ROWS = 1 << 16; // Row offsets read from the footer at once
+
+    private BinaryTableFile() {}
+
+    // Check if a file name uses the binary format
+    public static boolean isBinary(String fileName) {
+        return fileName.toLowerCase().endsWith(EXTENSION);
+    }
+
+    // Write rows to a binary table file, see write(File, List, boolean)
+    public static void write(File file, List<Row> rows) throws IOException {
+        write(file, rows, false);
+    }
+
+    /*
+        Write rows to a binary table file.
+        The rows are written through FileHandler.writeAtomically, so a crash never leaves a
+        half-written file and rows can be streamed from the old file (see PagedTable) while it is
+        being rewritten. With force the new file is flushed to the disk before this returns.
+    */
+    public static void write(File file, List<Row> rows, boolean force) throws IOException {
+        long[] offsets = new long[rows.size()];
+
+        FileHandler.writeAtomically(file, force, stream -> {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(rows.size());
+            long position = HEADER_SIZE; // DataOutputStream.size() overflows past 2 GB
+
+            int index = 0;
+            for(Row row : rows) {
+                offsets[index++] = position;
+                List<Pair> cells = row.getCells();
+                out.writeInt(cells.size());
+                position += 4;
+                for(Pair cell : cells) {
+                    position += writeString(out, cell.getKey());
+                    position += writeString(out, cell.getValue());
+                }
+            }
+
+            // Footer: row offsets followed by where the footer starts
+            for(long offset : offsets) {
+                out.writeLong(offset);
+            }
+            out.writeLong(position);
+            out.flush();
+        });
+    }
+
+    // Read every row of a binary table file in order
+    public static List<Row> readAll(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            int rowCount = readHeader(in.readInt(), in.readInt(), in.readInt());
+            List<Row> rows = new ArrayList<>(rowCount);
+            for(int i = 0; i < rowCount; i++) {
+                int cellCount = in.readInt();
+                List<Pair> cells = new ArrayList<>(cellCount);
+                for(int j = 0; j < cellCount; j++) {
+                    String key = readString(in);
+                    String value = readString(in);
+                    cells.add(new Pair(key, value));
+                }
+                rows.add(new Row(cells));
+            }
+            return rows;
+        }
+    }
+
+    // Open a binary table file for random access to its rows
+    public static Reader open(File file) throws IOException {
+        return new Reader(file);
+    }
+
+    // Random access reader over the rows of a binary table file
+    public static class Reader implements Closeable {
+        private final FileChannel channel;
+        private final long[] offsets; // Start of every row, plus the footer start as the end of the last row
+
+        private Reader(File file) throws IOException {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            try {
+                ByteBuffer header = readFully(0, HEADER_SIZE);
+                int rowCount = readHeader(header.getInt(), header.getInt(), header.getInt());
+
+                // The footer holds rowCount offsets and ends 8 bytes before the end of the file
+                long size = channel.size();
+                if(rowCount < 0 || size < HEADER_SIZE + 8) {
+                    throw new IOException("Corrupt table file: bad row count or size");
+                }
+                long footerStart = readFully(size - 8, 8).getLong();
+                if(footerStart < HEADER_SIZE || footerStart + 8L * rowCount != size - 8) {
+                    throw new IOException("Corrupt table file: footer does not match the row count");
+                }
+
+                // Read the offsets in chunks, a footer can be bigger than one buffer; each row starts after the one before
+                offsets = new long[rowCount + 1];
+                long previous = HEADER_SIZE;
+                for(int i = 0; i < rowCount; ) {
+                    int chunk = Math.min(rowCount - i, FOOTER_CHUNK_ROWS);
+                    ByteBuffer footer = readFully(footerStart + 8L * i, chunk * 8);
+                    for(int end = i + chunk; i < end; i++) {
+                        offsets[i] = footer.getLong();
+                        if(offsets[i] < previous || offsets[i] > footerStart) {
+                            throw new IOException("Corrupt table file: row offset " + i + " out of order");
+                        }
+                        previous = offsets[i];
+                    }
+                }
+                offsets[rowCount] = footerStart;
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        // Number of rows in the file
+        public int size() {
+            return offsets.length - 1;
+        }
+
+        // Byte offset of a row in the file
+        public long offsetOf(int index) {
+            return offsets[index];
+        }
+
+        // Read and decode a single row
+        public Row readRow(int index) throws IOException {
+            return readRowAt(offsets[index], (int) (offsets[index + 1] - offsets[index]));
+        }
+
+        // Read and decode the row stored at [offset, offset + length)
+        public Row readRowAt(long offset, int length) throws IOException {
+            ByteBuffer buffer = readFully(offset, length);
+            int cellCount = buffer.getInt();
+            List<Pair> cells = new ArrayList<>(cellCount);
+            for(int j = 0; j < cellCount; j++) {
+                String key = readString(buffer);
+                String value = readString(buffer);
+                cells.add(new Pair(key, value));
+            }
+            return new Row(cells);
+        }
+
+        // Read length bytes starting at position
+        private ByteBuffer readFully(long position, int length) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            while(buffer.hasRemaining()) {
+                if(channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new IOException("Unexpected end of table file");
+                }
+            }
+            buffer.flip();
+            return buffer;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    // Validate the header and return the row count
+    private static int readHeader(int magic, int version, int rowCount) throws IOException {
+        if(magic != MAGIC) {
+            throw new IOException("Not a binary table file");
+        }
+        if(version != VERSION) {
+            throw new IOException("Unsupported table file version " + version);
+        }
+        return rowCount;
+    }
+
+    // Write a length-prefixed UTF-8 string, returning the bytes written
+    private static int writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        return 4 + bytes.length;
+    }
+
+    // Read a length-prefixed UTF-8 string from a stream
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Read a length-prefixed UTF-8 string from a buffer
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        String s = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return s;
+    }
+}
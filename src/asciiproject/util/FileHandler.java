@@ -1,10 +1,23 @@
 package asciiproject.util;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
@@ -12,6 +25,20 @@ import java.util.Scanner;
 // Can be used by all, independent
 public class FileHandler {
     private static final String FOLDER_NAME = "text files"; // Folder for all .txt files
+    private static final Charset CHARSET = StandardCharsets.UTF_8; // Encoding of all table files
+    private static final int READ_BUFFER_SIZE = 1 << 16; // Initial size of the streaming read buffer
+    private static final int WRITE_BUFFER_SIZE = 1 << 16; // Buffer of text file writes
+    private static final int MAP_WINDOW_SIZE = 1 << 30; // Bytes mapped at once by mapLines (a mapping is limited to 2 GB)
+
+    // Writes the content of a file to a stream
+    public interface StreamWriter {
+        void write(OutputStream out) throws IOException;
+    }
+
+    // Receives one line of a file as the byte range [start, end) of a buffer, without the line break
+    public interface LineHandler {
+        void handle(ByteBuffer buffer, int start, int end);
+    }
 
     // Check if folder exists, if not create it
     public static File getFolder() {
@@ -30,9 +57,9 @@ public class FileHandler {
         return new File(getFolder(), fileName); // Combine folder path with filename
     }
 
-    // Helper method to ensure .txt extension
+    // Helper method to ensure .txt extension (binary .tbl files keep theirs)
     public static String ensureTxtExtension(String fileName) {
-        if (!fileName.toLowerCase().endsWith(".txt")) {
+        if (!fileName.toLowerCase().endsWith(".txt") && !BinaryTableFile.isBinary(fileName)) {
             return fileName + ".txt";
         }
         return fileName;
@@ -119,21 +146,83 @@ public class FileHandler {
         return fileName;
     }
 
-    // Save lines to text file
+    // Save lines to text file, replacing it atomically
     public static void saveText(String fileName, List<String> lines) {
         File file = getFilePath(fileName); // Get full file path
 
         // Write lines to the file
-        try (PrintWriter writer = new PrintWriter(file)) {
-            for (String line : lines) {
-                writer.println(line); // Write each line to the file
-            }
+        try {
+            writeText(file, lines, false);
             System.out.println("Saved to " + file.getPath());
         } catch (IOException e) {
             System.out.println("Error writing to file: " + e.getMessage());
         }
     }
 
+    // Write lines to a text file through writeAtomically
+    public static void writeText(File file, List<String> lines, boolean force) throws IOException {
+        writeAtomically(file, force, out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, CHARSET), WRITE_BUFFER_SIZE);
+            for (String line : lines) {
+                writer.write(line); // Write each line to the file
+                writer.write(System.lineSeparator());
+            }
+            writer.flush();
+        });
+    }
+
+    /*
+        Write a file so that a crash never leaves it half-written: the content goes to <file>.tmp,
+        which then atomically replaces the file (readers see the old or the new file, never a mix).
+        With force, the content is flushed to the disk (fsync) before the rename and the rename
+        after it, so the new file also survives a power loss once this returns.
+        The content must be flushed to the stream, not closed; the temporary file is removed if
+        writing fails.
+    */
+    public static void writeAtomically(File file, boolean force, StreamWriter content) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try {
+            try (FileOutputStream out = new FileOutputStream(temp)) {
+                content.write(out);
+                if (force) {
+                    out.getFD().sync();
+                }
+            }
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp.toPath());
+            throw e;
+        }
+        if (force) {
+            forceFolder(file);
+        }
+    }
+
+    // Flush a file already written and its folder entry to the disk (fsync)
+    public static void force(File file) throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+        forceFolder(file);
+    }
+
+    // Flush the folder holding a file so a rename into it is on the disk
+    private static void forceFolder(File file) {
+        File folder = file.getAbsoluteFile().getParentFile();
+        try (FileChannel channel = FileChannel.open(folder.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Folders cannot be opened on every platform (ex. Windows), which then orders renames itself
+        }
+    }
+
     // Read lines from text file
     public static List<String> readText(String fileName) {
         File file = getFilePath(fileName); // Get full file path
@@ -146,7 +235,7 @@ public class FileHandler {
         }
 
         // Read lines from the file
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+        try (BufferedReader reader = new BufferedReader(new FileReader(file, CHARSET))) {
             String line;
 
             // Read each line and add to the list
@@ -159,4 +248,125 @@ public class FileHandler {
 
         return lines;
     }
-}
\ No newline at end of file
+
+    // Stream a file line by line through a buffered channel, without building a list of lines
+    public static boolean readLines(String fileName, LineHandler handler) {
+        File file = getFilePath(fileName); // Get full file path
+
+        // Check if file exists
+        if (!file.exists()) {
+            System.out.println("File not found: " + file.getPath());
+            return false;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            int lineStart = 0; // Start of the line not yet handed out
+            int scanned = 0;   // Everything before this was already checked for a line break
+
+            while (true) {
+                int read = channel.read(buffer);
+
+                // Hand out every complete line in the buffer
+                int limit = buffer.position();
+                for (int i = scanned; i < limit; i++) {
+                    if (buffer.get(i) == '\n') {
+                        handler.handle(buffer, lineStart, i);
+                        lineStart = i + 1;
+                    }
+                }
+                scanned = limit;
+
+                if (read < 0) {
+                    // Last line without a trailing line break
+                    if (lineStart < limit) {
+                        handler.handle(buffer, lineStart, limit);
+                    }
+                    break;
+                }
+
+                // Move the unfinished line to the front, growing the buffer if a single line fills it
+                int remaining = limit - lineStart;
+                if (lineStart == 0 && remaining == buffer.capacity()) {
+                    ByteBuffer bigger = ByteBuffer.allocate(buffer.capacity() * 2);
+                    buffer.flip();
+                    bigger.put(buffer);
+                    buffer = bigger;
+                } else if (lineStart > 0) {
+                    System.arraycopy(buffer.array(), lineStart, buffer.array(), 0, remaining);
+                    buffer.position(remaining);
+                }
+                scanned = remaining;
+                lineStart = 0;
+            }
+        } catch (IOException e) {
+            System.out.println("Error reading file: " + e.getMessage());
+            return false;
+        }
+
+        return true;
+    }
+
+    /*
+        Scan a file line by line in place through memory-mapped windows.
+        Lines are handed out as byte ranges of the mapped buffer, so nothing is copied.
+        A window always ends after the last complete line it holds and the next window starts there,
+        which lets files larger than 2 GB be read in several mappings.
+    */
+    public static boolean mapLines(String fileName, LineHandler handler) {
+        File file = getFilePath(fileName); // Get full file path
+
+        // Check if file exists
+        if (!file.exists()) {
+            System.out.println("File not found: " + file.getPath());
+            return false;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            int windowSize = MAP_WINDOW_SIZE;
+
+            while (position < size) {
+                int length = (int) Math.min(windowSize, size - position);
+                boolean lastWindow = position + length == size;
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+
+                // Hand out every complete line in the window
+                int lineStart = 0;
+                for (int i = 0; i < length; i++) {
+                    if (window.get(i) == '\n') {
+                        handler.handle(window, lineStart, i);
+                        lineStart = i + 1;
+                    }
+                }
+
+                if (lastWindow) {
+                    // Last line without a trailing line break
+                    if (lineStart < length) {
+                        handler.handle(window, lineStart, length);
+                    }
+                    break;
+                }
+
+                if (lineStart == 0) {
+                    // A single line is longer than the window, so map a bigger one
+                    if (windowSize == Integer.MAX_VALUE) {
+                        System.out.println("Error reading file: line longer than " + Integer.MAX_VALUE + " bytes");
+                        return false;
+                    }
+                    windowSize = (int) Math.min((long) windowSize * 2, Integer.MAX_VALUE);
+                    continue;
+                }
+
+                // Continue right after the last complete line
+                position += lineStart;
+            }
+        } catch (IOException e) {
+            System.out.println("Error reading file: " + e.getMessage());
+            return false;
+        }
+
+        return true;
+    }
+}
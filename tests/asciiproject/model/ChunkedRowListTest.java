@@ -0,0 +1,157 @@
+package asciiproject.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class ChunkedRowListTest {
+    @Test
+    void matchesArrayListUnderRandomOperations() {
+        Random random = new Random(23);
+        ChunkedRowList list = new ChunkedRowList();
+        List<Row> model = new ArrayList<>();
+
+        // Grow well past several blocks, then shrink and grow again so blocks split, merge and empty
+        for(int phase = 0; phase < 6; phase++) {
+            boolean growing = phase % 2 == 0;
+            for(int op = 0; op < 20000; op++) {
+                int choice = random.nextInt(10);
+                if(model.isEmpty() || (growing ? choice < 6 : choice < 2)) {
+                    int index = random.nextInt(model.size() + 1);
+                    Row row = newRow();
+                    list.add(index, row);
+                    model.add(index, row);
+                } else if(choice < 8) {
+                    int index = skewed(random, model.size());
+                    Row removed = model.remove(index);
+                    assertSame(removed, list.remove(index));
+                    assertEquals(-1, list.indexOf(removed));
+                } else {
+                    int index = random.nextInt(model.size());
+                    Row row = newRow();
+                    Row replaced = model.set(index, row);
+                    assertSame(replaced, list.set(index, row));
+                    assertEquals(-1, list.indexOf(replaced));
+                }
+                if(!model.isEmpty()) {
+                    // Rows shifted by the changes before them are found at their new position
+                    int index = random.nextInt(model.size());
+                    assertEquals(index, list.indexOf(model.get(index)));
+                }
+                if(op % 2000 == 0) {
+                    assertSameRows(model, list);
+                }
+            }
+            assertSameRows(model, list);
+        }
+    }
+
+    @Test
+    void appendsAndInsertsAtTheFrontLikeArrayList() {
+        ChunkedRowList list = new ChunkedRowList();
+        List<Row> model = new ArrayList<>();
+        for(int i = 0; i < 5000; i++) {
+            Row row = newRow();
+            if(i % 3 == 0) {
+                list.add(0, row);
+                model.add(0, row);
+            } else {
+                list.add(row);
+                model.add(row);
+            }
+        }
+        assertSameRows(model, list);
+
+        list.clear();
+        assertEquals(0, list.size());
+        assertFalse(list.iterator().hasNext());
+        Row row = newRow();
+        list.add(row);
+        assertSame(row, list.get(0));
+    }
+
+    @Test
+    void findsARowAddedToAnotherListToo() {
+        ChunkedRowList first = new ChunkedRowList();
+        ChunkedRowList second = new ChunkedRowList();
+        Row shared = newRow();
+        first.add(newRow());
+        first.add(shared);
+        second.add(shared); // Points the row back at the second list
+
+        assertEquals(1, first.indexOf(shared));
+        assertEquals(0, second.indexOf(shared));
+        assertEquals(-1, first.indexOf(newRow()));
+    }
+
+    @Test
+    void iteratorRemoveKeepsTheRestInOrder() {
+        ChunkedRowList list = new ChunkedRowList();
+        List<Row> model = new ArrayList<>();
+        for(int i = 0; i < 4000; i++) {
+            Row row = newRow();
+            list.add(row);
+            model.add(row);
+        }
+
+        // Remove three rows of every four, emptying and merging blocks while iterating
+        Iterator<Row> it = list.iterator();
+        Iterator<Row> expected = model.iterator();
+        int i = 0;
+        while(it.hasNext()) {
+            assertSame(expected.next(), it.next());
+            if(i++ % 4 != 0) {
+                it.remove();
+                expected.remove();
+            }
+        }
+        assertSameRows(model, list);
+        assertThrows(NoSuchElementException.class, it::next);
+    }
+
+    @Test
+    void failsFastAndChecksBounds() {
+        ChunkedRowList list = new ChunkedRowList();
+        list.add(newRow());
+        Iterator<Row> it = list.iterator();
+        list.add(newRow());
+        assertThrows(ConcurrentModificationException.class, it::next);
+
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(2));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(-1));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.add(3, newRow()));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.remove(2));
+    }
+
+    // Index biased towards the front, so removals also hit the first blocks
+    private static int skewed(Random random, int size) {
+        return random.nextBoolean() ? random.nextInt(Math.min(size, 50)) : random.nextInt(size);
+    }
+
+    private static Row newRow() {
+        return new Row(Collections.singletonList(new Pair("k", "v")));
+    }
+
+    private static void assertSameRows(List<Row> expected, ChunkedRowList actual) {
+        assertEquals(expected.size(), actual.size());
+        for(int i = 0; i < expected.size(); i++) {
+            assertSame(expected.get(i), actual.get(i), "row " + i);
+        }
+        int i = 0;
+        for(Row row : actual) {
+            assertSame(expected.get(i++), row, "iterated row " + (i - 1));
+        }
+        assertEquals(expected.size(), i);
+    }
+}
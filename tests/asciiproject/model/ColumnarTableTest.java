@@ -0,0 +1,121 @@
+package asciiproject.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class ColumnarTableTest {
+    @Test
+    void compactsTheArenaAndKeepsTheCellsUnderRandomEdits() {
+        Random random = new Random(8);
+        ColumnarTable table = new ColumnarTable();
+        List<List<String>> model = new ArrayList<>();
+        for(int i = 0; i < 200; i++) {
+            List<Pair> cells = randomCells(random);
+            table.addRow(new Row(cells));
+            model.add(render(cells));
+        }
+
+        long largest = 0;
+        for(int step = 0; step < 50000; step++) {
+            int row = random.nextInt(table.size());
+            int col = random.nextInt(model.get(row).size() / 2);
+            switch(random.nextInt(5)) {
+                case 0: {
+                    // Removed, another row edited, then added back as an undone delete does, possibly across a compaction
+                    Row removed = table.removeRow(row);
+                    List<String> removedText = model.remove(row);
+                    int other = random.nextInt(model.size());
+                    String key = text(random);
+                    String value = text(random);
+                    table.setCell(other, 0, key, value);
+                    model.get(other).set(0, key);
+                    model.get(other).set(1, value);
+                    table.addRowAt(row, removed);
+                    model.add(row, removedText);
+                    break;
+                }
+                case 1: {
+                    List<Pair> cells = randomCells(random);
+                    table.setRow(row, new Row(cells));
+                    model.set(row, render(cells));
+                    break;
+                }
+                default: {
+                    String key = text(random);
+                    String value = text(random);
+                    table.setCell(row, col, key, value);
+                    model.get(row).set(col * 2, key);
+                    model.get(row).set(col * 2 + 1, value);
+                    break;
+                }
+            }
+            largest = Math.max(largest, table.arenaSize());
+        }
+
+        assertEquals(model, renderAll(table));
+        // About 200 rows of 8 cells of 2 x 20 bytes are live, dead bytes never pile up beyond a few arenas of that
+        assertTrue(largest < 1 << 20, "Arena grew to " + largest + " bytes");
+        table.compactArena();
+        assertEquals(model, renderAll(table));
+    }
+
+    @Test
+    void pairsReadBeforeACompactionKeepTheirText() {
+        ColumnarTable table = new ColumnarTable();
+        List<Pair> cells = new ArrayList<>();
+        cells.add(new Pair("key", "value"));
+        table.addRow(new Row(cells));
+        Pair before = table.getRow(0).getCells().get(0);
+        Row removed = table.removeRow(0);
+        table.addRow(new Row(new ArrayList<>(List.of(new Pair("other", "row")))));
+
+        table.compactArena();
+        assertEquals("key", before.getKey());
+        assertEquals("value", removed.getCells().get(0).getValue());
+
+        table.addRowAt(0, removed);
+        table.compactArena();
+        assertEquals("key", table.getRow(0).getCells().get(0).getKey());
+        assertEquals("row", table.getRow(1).getCells().get(0).getValue());
+    }
+
+    // Cells of every row as [key, value, key, value, ...]
+    private static List<List<String>> renderAll(ColumnarTable table) {
+        List<List<String>> rows = new ArrayList<>();
+        for(Row row : table.getRows()) {
+            rows.add(render(row.getCells()));
+        }
+        return rows;
+    }
+
+    private static List<String> render(List<Pair> cells) {
+        List<String> text = new ArrayList<>();
+        for(Pair cell : cells) {
+            text.add(cell.getKey());
+            text.add(cell.getValue());
+        }
+        return text;
+    }
+
+    private static List<Pair> randomCells(Random random) {
+        List<Pair> cells = new ArrayList<>();
+        for(int j = 0; j < 8; j++) {
+            cells.add(new Pair(text(random), text(random)));
+        }
+        return cells;
+    }
+
+    private static String text(Random random) {
+        StringBuilder sb = new StringBuilder();
+        for(int i = 0; i < 20; i++) {
+            sb.append((char) ('a' + random.nextInt(26)));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,119 @@
+package asciiproject.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import asciiproject.util.BinaryTableFile;
+
+class PagedTableTest {
+    private static final int ROWS = 200;
+    private static final int WINDOW = 8;
+
+    @TempDir
+    File folder;
+
+    @Test
+    void readsFromSeveralThreadsWhileTheWindowEvicts() throws Exception {
+        File file = writeRows("concurrent.tbl");
+        try (PagedTable table = new PagedTable(file, WINDOW)) {
+            ExecutorService pool = Executors.newFixedThreadPool(4);
+            try {
+                List<Future<?>> readers = new ArrayList<>();
+                for(int t = 0; t < 4; t++) {
+                    int offset = t;
+                    readers.add(pool.submit(() -> {
+                        for(int n = 0; n < 5000; n++) {
+                            int i = (n * 7 + offset) % ROWS;
+                            assertEquals("k" + i, table.getRow(i).getCells().get(0).getKey());
+                        }
+                    }));
+                }
+
+                // Edits pin rows while the readers keep evicting the window
+                for(int i = 0; i < ROWS; i += 3) {
+                    table.setCell(i, 1, "edited" + i, "v");
+                }
+                for(Future<?> reader : readers) {
+                    reader.get();
+                }
+            } finally {
+                pool.shutdown();
+            }
+
+            for(int i = 0; i < ROWS; i++) {
+                String expected = i % 3 == 0 ? "edited" + i : "x" + i;
+                assertEquals(expected, table.getRow(i).getCells().get(1).getKey());
+            }
+        }
+    }
+
+    @Test
+    void reorderMovesRowsWithoutLosingPinnedChanges() throws IOException {
+        File file = writeRows("reorder.tbl");
+        try (PagedTable table = new PagedTable(file, WINDOW)) {
+            table.setCell(3, 0, "pinned", "v");
+            int[] reversed = new int[ROWS];
+            for(int i = 0; i < ROWS; i++) {
+                reversed[i] = ROWS - 1 - i;
+            }
+            table.reorder(reversed);
+
+            assertEquals("k199", table.getRow(0).getCells().get(0).getKey());
+            assertEquals("pinned", table.getRow(ROWS - 4).getCells().get(0).getKey());
+            table.save(false);
+        }
+
+        List<Row> stored = BinaryTableFile.readAll(file);
+        for(int i = 0; i < ROWS; i++) {
+            String expected = i == ROWS - 4 ? "pinned" : "k" + (ROWS - 1 - i);
+            assertEquals(expected, stored.get(i).getCells().get(0).getKey());
+        }
+    }
+
+    @Test
+    void saveWritesPinnedRowsBackAndPagesFromTheNewFile() throws IOException {
+        File file = writeRows("save.tbl");
+        try (PagedTable table = new PagedTable(file, WINDOW)) {
+            table.setCell(5, 0, "changed", "value");
+            table.addRowAt(0, new Row(new ArrayList<>(List.of(new Pair("first", "row")))));
+            table.removeRow(ROWS);
+
+            table.save(false);
+
+            // Rows now come from the rewritten file
+            assertEquals("changed", table.getRow(6).getCells().get(0).getKey());
+            assertEquals("first", table.getRow(0).getCells().get(0).getKey());
+            assertEquals(ROWS, table.size());
+        }
+
+        List<Row> stored = BinaryTableFile.readAll(file);
+        assertEquals(ROWS, stored.size());
+        assertEquals("first", stored.get(0).getCells().get(0).getKey());
+        assertEquals("changed", stored.get(6).getCells().get(0).getKey());
+        assertEquals("k198", stored.get(ROWS - 1).getCells().get(0).getKey());
+    }
+
+    // Rows [k<i>, x<i>] for i in 0..ROWS-1
+    private File writeRows(String name) throws IOException {
+        List<Row> rows = new ArrayList<>();
+        for(int i = 0; i < ROWS; i++) {
+            List<Pair> cells = new ArrayList<>();
+            cells.add(new Pair("k" + i, "v" + i));
+            cells.add(new Pair("x" + i, "y" + i));
+            rows.add(new Row(cells));
+        }
+        File file = new File(folder, name);
+        BinaryTableFile.write(file, rows);
+        return file;
+    }
+}
@@ -0,0 +1,64 @@
+package asciiproject.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import asciiproject.model.Pair;
+import asciiproject.model.SearchResult;
+import asciiproject.service.TableService;
+
+class TableServerTest {
+    @Test
+    void answersAnUnexpectedFailureWithErrAndKeepsTheConnection() throws Exception {
+        TableService service = new TableService("server-test.txt") {
+            @Override
+            public SearchResult search(String input) {
+                throw new IllegalStateException("search failed");
+            }
+        };
+        service.setDeferredSaves(true);
+        service.insertRow(0, new ArrayList<>(Arrays.asList(new Pair("k", "v"))));
+
+        TableServer server = new TableServer(service, 0);
+        Thread serving = new Thread(server::serve);
+        serving.start();
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+            out.write("SEARCH\tk\nSIZE\n");
+            out.flush();
+            assertEquals("ERR\tsearch failed", in.readLine());
+            assertEquals("OK\t1", in.readLine());
+            assertEquals("1", in.readLine());
+
+            // Closing ends the idle connection instead of waiting for the client
+            server.close();
+            assertNull(in.readLine());
+        } finally {
+            server.close();
+            serving.join();
+        }
+    }
+
+    @Test
+    void closeReturnsWithoutClients() throws IOException, InterruptedException {
+        TableServer server = new TableServer(new TableService("server-test.txt"), 0);
+        Thread serving = new Thread(server::serve);
+        serving.start();
+        server.close();
+        serving.join();
+    }
+}
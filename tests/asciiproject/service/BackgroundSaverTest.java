@@ -0,0 +1,38 @@
+package asciiproject.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class BackgroundSaverTest {
+    @Test
+    void keepsAFailedWriteForTheCallerAndWritesAgainOnTheNextRequest() {
+        AtomicInteger writes = new AtomicInteger();
+        BackgroundSaver saver = new BackgroundSaver(new BackgroundSaver.SaveTask() {
+            @Override
+            public void write(boolean force) throws IOException {
+                if(writes.incrementAndGet() == 1) {
+                    throw new IOException("disk full");
+                }
+            }
+
+            @Override
+            public void force() {}
+        }, 0);
+
+        saver.request();
+        saver.await(false);
+        assertEquals("disk full", saver.takeFailure().getMessage());
+        assertNull(saver.takeFailure(), "A failure is reported once");
+
+        saver.request();
+        saver.await(true);
+        assertNull(saver.takeFailure());
+        assertEquals(2, writes.get());
+        saver.close();
+    }
+}
@@ -0,0 +1,187 @@
+package asciiproject.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import asciiproject.model.Pair;
+import asciiproject.util.FileHandler;
+
+class ChangeLogTest {
+    private static final String TABLE = "changelog-test.txt";
+    private final File file = FileHandler.getFilePath(TABLE + ".log");
+
+    @AfterEach
+    void deleteLog() {
+        file.delete();
+    }
+
+    @Test
+    void replaysEveryKindOfRecord() {
+        ChangeLog log = new ChangeLog(TABLE);
+        log.clear();
+        appendSample(log);
+        log.close();
+
+        List<String> replayed = replay(new ChangeLog(TABLE));
+        assertEquals(sample(), replayed);
+    }
+
+    @Test
+    void replaysLineBreaksAndBackslashesInsideStrings() {
+        ChangeLog log = new ChangeLog(TABLE);
+        log.clear();
+        log.appendEdit(0, 0, "a\nb", "c\r\nd\\n");
+        log.appendInsert(1, Arrays.asList(new Pair("\\", "\n")));
+        log.appendDeleteRow(2);
+        log.close();
+
+        assertEquals(Arrays.asList("E 0 0 a\nb|c\r\nd\\n", "I 1 \\|\n", "D 2"), replay(new ChangeLog(TABLE)));
+    }
+
+    @Test
+    void discardsARecordTornAtAnyByte() throws IOException {
+        ChangeLog log = new ChangeLog(TABLE);
+        log.clear();
+        appendSample(log);
+        log.close();
+        byte[] complete = Files.readAllBytes(file.toPath());
+        int lastStart = lastRecordStart(complete);
+
+        // Cut the last record after every one of its bytes, including just before its newline
+        for(int length = lastStart; length < complete.length; length++) {
+            Files.write(file.toPath(), Arrays.copyOf(complete, length));
+            ChangeLog torn = new ChangeLog(TABLE);
+            List<String> replayed = replay(torn);
+            assertEquals(sample().subList(0, 4), replayed, "Cut at " + length);
+            assertEquals(lastStart, file.length(), "The torn record is cut from the file");
+
+            // Records appended after the cut replay normally
+            torn.appendDeleteRow(7);
+            torn.close();
+            List<String> expected = new ArrayList<>(sample().subList(0, 4));
+            expected.add("D 7");
+            assertEquals(expected, replay(new ChangeLog(TABLE)));
+        }
+    }
+
+    @Test
+    void stopsAtARecordWithAChangedByte() throws IOException {
+        ChangeLog log = new ChangeLog(TABLE);
+        log.clear();
+        appendSample(log);
+        log.close();
+
+        // "D 12" with its last digit lost still parses, the checksum catches it
+        String text = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        int at = text.substring(0, text.indexOf("D 123") + 4).getBytes(StandardCharsets.UTF_8).length;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(at);
+            raf.write(' ');
+        }
+        assertEquals(sample().subList(0, 3), replay(new ChangeLog(TABLE)));
+    }
+
+    @Test
+    void replaysACommittedBatchAndDropsAnUncommittedOne() throws IOException {
+        ChangeLog log = new ChangeLog(TABLE);
+        log.clear();
+        log.appendDeleteRow(9);
+        log.appendBatch(sampleBatch());
+        log.close();
+        byte[] complete = Files.readAllBytes(file.toPath());
+        int batchStart = new String(complete, StandardCharsets.UTF_8).indexOf("B 3");
+
+        List<String> committed = Arrays.asList("D 9", "E 0 1 k|v", "I 2 a|b", "C 1 0");
+        assertEquals(committed, replay(new ChangeLog(TABLE)));
+
+        // A batch cut anywhere before the end of its commit leaves none of its operations applied
+        for(int length = batchStart; length < complete.length; length++) {
+            Files.write(file.toPath(), Arrays.copyOf(complete, length));
+            assertEquals(Arrays.asList("D 9"), replay(new ChangeLog(TABLE)), "Cut at " + length);
+            assertEquals(batchStart, file.length(), "The uncommitted batch is cut from the file");
+        }
+    }
+
+    // Edit [0,1], insert a row at 2, delete cell [1,0]
+    private static List<MutationBatch.Applied> sampleBatch() {
+        List<MutationBatch.Applied> batch = new ArrayList<>();
+        batch.add(new MutationBatch.Applied(MutationBatch.Kind.EDIT, 0, 1, null, "old", "old", "k", "v", null));
+        batch.add(new MutationBatch.Applied(MutationBatch.Kind.INSERT, 2, -1, null, null, null, null, null, Arrays.asList(new Pair("a", "b"))));
+        batch.add(new MutationBatch.Applied(MutationBatch.Kind.DELETE_CELL, 1, 0, null, "x", "y", null, null, null));
+        return batch;
+    }
+
+    private static void appendSample(ChangeLog log) {
+        log.appendEdit(1, 2, "k y", "v:1");
+        log.appendInsert(0, Arrays.asList(new Pair("a", "b"), new Pair("", "é中")));
+        log.appendSort(3, "desc");
+        log.appendDeleteRow(123);
+        log.appendDeleteCell(4, 56);
+    }
+
+    // The records of appendSample as decoded by recording()
+    private static List<String> sample() {
+        return Arrays.asList("E 1 2 k y|v:1", "I 0 a|b,|é中", "S 3 desc", "D 123", "C 4 56");
+    }
+
+    private static List<String> replay(ChangeLog log) {
+        List<String> replayed = new ArrayList<>();
+        log.replay(recording(replayed));
+        assertEquals(replayed.size(), log.size());
+        return replayed;
+    }
+
+    // Replayer that writes every record it receives as text
+    private static ChangeLog.Replayer recording(List<String> out) {
+        return new ChangeLog.Replayer() {
+            @Override
+            public void edit(int row, int col, String key, String value) {
+                out.add("E " + row + " " + col + " " + key + "|" + value);
+            }
+
+            @Override
+            public void insert(int index, List<Pair> cells) {
+                StringBuilder sb = new StringBuilder("I " + index + " ");
+                for(int i = 0; i < cells.size(); i++) {
+                    sb.append(i > 0 ? "," : "").append(cells.get(i).getKey()).append('|').append(cells.get(i).getValue());
+                }
+                out.add(sb.toString());
+            }
+
+            @Override
+            public void sort(int row, String order) {
+                out.add("S " + row + " " + order);
+            }
+
+            @Override
+            public void deleteRow(int row) {
+                out.add("D " + row);
+            }
+
+            @Override
+            public void deleteCell(int row, int col) {
+                out.add("C " + row + " " + col);
+            }
+        };
+    }
+
+    // Byte offset where the last line starts
+    private static int lastRecordStart(byte[] bytes) {
+        int i = bytes.length - 2;
+        while(i >= 0 && bytes[i] != '\n') {
+            i--;
+        }
+        return i + 1;
+    }
+}
@@ -0,0 +1,165 @@
+package asciiproject.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import asciiproject.model.Pair;
+import asciiproject.model.SearchResult;
+import asciiproject.model.Table;
+import asciiproject.util.FileHandler;
+
+class ConcurrentEditTest {
+    private static final String TABLE = "concurrent-edit-test.txt";
+    private static final int ROWS = 200;
+    private static final int COLS = 6;
+    private static final int WRITERS = 4;
+
+    @AfterEach
+    void deleteFile() {
+        FileHandler.getFilePath(TABLE).delete();
+    }
+
+    @Test
+    void editsOfDifferentRowsRunWhileSearchesFindEveryUntouchedCell() throws Exception {
+        TableService service = newService();
+        AtomicInteger sharedTaken = new AtomicInteger();
+        AtomicBoolean writing = new AtomicBoolean(true);
+
+        ExecutorService pool = Executors.newFixedThreadPool(WRITERS + 2);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for(int t = 0; t < WRITERS; t++) {
+                int writer = t;
+                writers.add(pool.submit(() -> {
+                    // Every writer tries to take the same key, only one may get it
+                    try {
+                        service.edit(writer, 1, "shared", null);
+                        sharedTaken.incrementAndGet();
+                    } catch(IllegalArgumentException e) {
+                        assertEquals("Key already exists: shared", e.getMessage());
+                    }
+
+                    Random random = new Random(writer);
+                    for(int n = 0; n < 3000; n++) {
+                        int row = writer + WRITERS * random.nextInt(ROWS / WRITERS);
+                        int size = service.getTable().getRow(row).getCells().size();
+                        if(random.nextInt(20) == 0 && size > 2) {
+                            service.deleteCell(row, size - 1);
+                            continue;
+                        }
+                        // Keys from a small pool are taken by all writers at once
+                        String key = random.nextBoolean() ? "pool" + random.nextInt(20) : "w" + writer + "n" + n;
+                        try {
+                            service.edit(row, 1 + random.nextInt(size - 1), key, "value" + random.nextInt(100));
+                        } catch(IllegalArgumentException e) {
+                            assertEquals("Key already exists: " + key, e.getMessage());
+                        }
+                    }
+                }));
+            }
+
+            // Column 0 is never edited, so its cells must be found throughout
+            List<Future<?>> readers = new ArrayList<>();
+            for(int t = 0; t < 2; t++) {
+                int reader = t;
+                readers.add(pool.submit(() -> {
+                    Random random = new Random(100 + reader);
+                    while(writing.get()) {
+                        int row = random.nextInt(ROWS);
+                        String key = "r" + row + "c0";
+                        SearchResult result = service.search(key);
+                        assertTrue(hasHit(result, row, 0), key);
+                        assertArrayEquals(new int[] {row, 0}, service.lookupByKey(key), key);
+                    }
+                }));
+            }
+
+            for(Future<?> writer : writers) {
+                writer.get();
+            }
+            writing.set(false);
+            for(Future<?> reader : readers) {
+                reader.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(1, sharedTaken.get());
+        assertKeysAreUniqueAndIndexed(service);
+
+        // The index and the cache answer like a full scan
+        Table table = service.getTable();
+        for(String term : Arrays.asList("shared", "pool1", "w2n", "value4", "r1", "c0", "lue")) {
+            List<SearchResult.Hit> expected = new SearchTask(table, term, null, 0, table.size(), false).invoke();
+            assertHitsEqual(expected, service.search(term).getHits());
+            service.clearSearchCache();
+            assertHitsEqual(expected, service.search(term).getHits());
+        }
+    }
+
+    private static TableService newService() {
+        TableService service = new TableService(TABLE);
+        service.setDeferredSaves(true);
+        service.useConcurrentTable();
+        for(int i = 0; i < ROWS; i++) {
+            List<Pair> cells = new ArrayList<>();
+            for(int j = 0; j < COLS; j++) {
+                cells.add(new Pair("r" + i + "c" + j, "v" + i + "_" + j));
+            }
+            service.insertRow(i, cells);
+        }
+        return service;
+    }
+
+    // Every key is held by one cell, and the key index resolves it to that cell
+    private static void assertKeysAreUniqueAndIndexed(TableService service) {
+        Table table = service.getTable();
+        Map<String, int[]> cells = new HashMap<>();
+        for(int i = 0; i < table.size(); i++) {
+            List<Pair> row = table.getRow(i).getCells();
+            for(int j = 0; j < row.size(); j++) {
+                int[] previous = cells.put(row.get(j).getKey(), new int[] {i, j});
+                assertEquals(null, previous, row.get(j).getKey());
+            }
+        }
+        for(Map.Entry<String, int[]> cell : cells.entrySet()) {
+            assertArrayEquals(cell.getValue(), service.lookupByKey(cell.getKey()), cell.getKey());
+        }
+    }
+
+    private static boolean hasHit(SearchResult result, int row, int col) {
+        for(SearchResult.Hit hit : result.getHits()) {
+            if(hit.getRow() == row && hit.getCol() == col) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void assertHitsEqual(List<SearchResult.Hit> expected, List<SearchResult.Hit> actual) {
+        assertEquals(expected.size(), actual.size());
+        for(int h = 0; h < expected.size(); h++) {
+            assertEquals(expected.get(h).getRow(), actual.get(h).getRow());
+            assertEquals(expected.get(h).getCol(), actual.get(h).getCol());
+            assertEquals(expected.get(h).getKeyCount(), actual.get(h).getKeyCount());
+            assertEquals(expected.get(h).getValueCount(), actual.get(h).getValueCount());
+        }
+    }
+}
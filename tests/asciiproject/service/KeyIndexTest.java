@@ -0,0 +1,153 @@
+package asciiproject.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import asciiproject.model.Pair;
+import asciiproject.model.Row;
+import asciiproject.model.Table;
+
+class KeyIndexTest {
+    @Test
+    void keepsDuplicatesUntilEveryCellIsRemoved() {
+        Row first = new Row(new ArrayList<>(Arrays.asList(new Pair("k", "1"))));
+        Row second = new Row(new ArrayList<>(Arrays.asList(new Pair("x", "2"), new Pair("k", "3"))));
+        KeyIndex index = new KeyIndex();
+        index.addRow(first);
+        index.addRow(second);
+        assertEquals(2, index.count("k"));
+
+        index.remove("k", first, 0);
+        assertEquals(1, index.count("k"));
+        assertSame(second, index.lookup("k").getRow());
+        assertEquals(1, index.lookup("k").getCol());
+
+        index.removeRow(second);
+        assertFalse(index.contains("k"));
+        assertNull(index.lookup("x"));
+    }
+
+    @Test
+    void lookupFindsAKeyAfterRowsAreInsertedAndRemovedBeforeIt() {
+        for(boolean concurrent : new boolean[] {false, true}) {
+            TableService service = new TableService("key-lookup-test.txt");
+            service.setDeferredSaves(true);
+            if(concurrent) {
+                service.useConcurrentTable();
+            }
+            // Several blocks of the row list, the looked up row in a middle one
+            for(int i = 0; i < 5000; i++) {
+                service.insertRow(i, new ArrayList<>(Arrays.asList(new Pair("k" + i, "v"))));
+            }
+            assertEquals(3000, service.lookupByKey("k3000")[0]);
+
+            for(int i = 0; i < 700; i++) {
+                service.insertRow(i * 3, new ArrayList<>(Arrays.asList(new Pair("new" + i, "v"))));
+            }
+            assertEquals(3700, service.lookupByKey("k3000")[0], "Concurrent: " + concurrent);
+            for(int i = 0; i < 1500; i++) {
+                service.deleteRow(0);
+            }
+            assertEquals(2200, service.lookupByKey("k3000")[0], "Concurrent: " + concurrent);
+            assertEquals(0, service.lookupByKey("k3000")[1]);
+        }
+    }
+
+    @Test
+    void resolvesPositionsAfterRandomRowAndCellChanges() {
+        Random random = new Random(5);
+        Table table = new Table();
+        int next = 0;
+        for(int i = 0; i < 50; i++) {
+            table.addRow(new Row(cells(next, 1 + random.nextInt(6))));
+            next += 6;
+        }
+        KeyIndex index = new KeyIndex();
+        index.rebuild(table);
+
+        for(int step = 0; step < 2000; step++) {
+            int row = random.nextInt(table.size());
+            Row stored = table.getRow(row);
+            switch(random.nextInt(5)) {
+                case 0: {
+                    // Rows are inserted without touching the entries of the others
+                    Row added = new Row(cells(next, 1 + random.nextInt(6)));
+                    next += 6;
+                    table.addRowAt(row, added);
+                    index.addRow(added);
+                    break;
+                }
+                case 1:
+                    if(table.size() > 1) {
+                        index.removeRow(table.removeRow(row));
+                    }
+                    break;
+                case 2: {
+                    int col = random.nextInt(stored.getCells().size());
+                    String key = "e" + step;
+                    index.remove(stored.getCells().get(col).getKey(), stored, col);
+                    index.put(key, stored, col);
+                    table.setCell(row, col, key, "v");
+                    break;
+                }
+                case 3:
+                    if(stored.getCells().size() > 1) {
+                        List<Pair> before = new ArrayList<>(stored.getCells());
+                        table.updateCells(row, cells -> cells.remove(random.nextInt(cells.size())));
+                        index.removeCells(stored, before);
+                        index.addRow(stored);
+                    }
+                    break;
+                default: {
+                    // Swapping rows moves no entry
+                    int other = random.nextInt(table.size());
+                    table.setRow(row, table.getRow(other));
+                    table.setRow(other, stored);
+                    break;
+                }
+            }
+
+            if(step % 50 == 0) {
+                assertMatchesTable(table, index);
+            }
+        }
+        assertMatchesTable(table, index);
+    }
+
+    // Every key resolves to the position holding it in the table
+    private static void assertMatchesTable(Table table, KeyIndex index) {
+        Map<String, int[]> expected = new HashMap<>();
+        for(int i = 0; i < table.size(); i++) {
+            List<Pair> cells = table.getRow(i).getCells();
+            for(int j = 0; j < cells.size(); j++) {
+                expected.put(cells.get(j).getKey(), new int[] {i, j});
+            }
+        }
+        for(Map.Entry<String, int[]> entry : expected.entrySet()) {
+            KeyIndex.Cell cell = index.lookup(entry.getKey());
+            assertEquals(1, index.count(entry.getKey()), entry.getKey());
+            assertEquals(entry.getValue()[0], table.indexOf(cell.getRow()), entry.getKey());
+            assertEquals(entry.getValue()[1], cell.getCol(), entry.getKey());
+        }
+    }
+
+    // Cells with the unique keys "k<first>", "k<first + 1>", ...
+    private static List<Pair> cells(int first, int count) {
+        List<Pair> cells = new ArrayList<>();
+        for(int j = 0; j < count; j++) {
+            cells.add(new Pair("k" + (first + j), "v"));
+        }
+        return cells;
+    }
+}
@@ -0,0 +1,80 @@
+package asciiproject.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class MultiPatternMatcherTest {
+    @Test
+    void countsOverlappingMatchesLikeCountOccurrences() {
+        List<String> patterns = Arrays.asList("aa", "a", "aaa", "ba");
+        MultiPatternMatcher matcher = new MultiPatternMatcher(patterns);
+        assertArrayEquals(new int[] {3, 4, 2, 0}, counts(matcher, "aaaa"));
+        assertArrayEquals(new int[] {1, 3, 0, 2}, counts(matcher, "babaa"));
+    }
+
+    @Test
+    void matchesBruteForceOnRandomPatternsAndTexts() {
+        // Small alphabets with ASCII and non-ASCII characters give many shared prefixes and failure links
+        String alphabet = "abé中";
+        Random random = new Random(7);
+        for(int round = 0; round < 200; round++) {
+            Set<String> distinct = new LinkedHashSet<>();
+            int patternCount = 1 + random.nextInt(8);
+            while(distinct.size() < patternCount) {
+                distinct.add(randomText(random, alphabet, 1 + random.nextInt(4)));
+            }
+            List<String> patterns = new ArrayList<>(distinct);
+            MultiPatternMatcher matcher = new MultiPatternMatcher(patterns);
+            assertEquals(patterns.size(), matcher.patternCount());
+
+            for(int t = 0; t < 20; t++) {
+                String text = randomText(random, alphabet, random.nextInt(30));
+                int[] counts = counts(matcher, text);
+                for(int p = 0; p < patterns.size(); p++) {
+                    assertEquals(SearchTask.countOccurrences(text, patterns.get(p)), counts[p],
+                            "\"" + patterns.get(p) + "\" in \"" + text + "\"");
+                }
+            }
+        }
+    }
+
+    @Test
+    void reportsEachTouchedPatternOnce() {
+        MultiPatternMatcher matcher = new MultiPatternMatcher(Arrays.asList("a", "b", "c"));
+        int[] counts = new int[3];
+        int[] touched = new int[6];
+        int touchedCount = matcher.count("abab", counts, touched, 0);
+        assertEquals(2, touchedCount);
+        assertArrayEquals(new int[] {0, 1}, Arrays.copyOf(touched, touchedCount));
+        assertArrayEquals(new int[] {2, 2, 0}, counts);
+    }
+
+    @Test
+    void rejectsEmptyPatterns() {
+        assertThrows(IllegalArgumentException.class, () -> new MultiPatternMatcher(Arrays.asList("a", "")));
+    }
+
+    private static int[] counts(MultiPatternMatcher matcher, String text) {
+        int[] counts = new int[matcher.patternCount()];
+        matcher.count(text, counts, new int[matcher.patternCount()], 0);
+        return counts;
+    }
+
+    private static String randomText(Random random, String alphabet, int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for(int i = 0; i < length; i++) {
+            sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return sb.toString();
+    }
+}
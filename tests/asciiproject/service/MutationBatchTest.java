@@ -0,0 +1,251 @@
+package asciiproject.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import asciiproject.model.Pair;
+import asciiproject.model.Row;
+import asciiproject.model.Table;
+import asciiproject.util.FileHandler;
+
+class MutationBatchTest {
+    @Test
+    void undoRestoresTheTableAfterAFailedOperation() {
+        Random random = new Random(3);
+        for(int round = 0; round < 300; round++) {
+            Table table = randomTable(random);
+            List<String> before = render(table);
+
+            // Random valid operations, then one that fails
+            MutationBatch batch = new MutationBatch();
+            Table model = copyOf(table);
+            int operations = 1 + random.nextInt(12);
+            for(int n = 0; n < operations; n++) {
+                addRandomOperation(random, batch, model);
+            }
+            batch.deleteRow(model.size());
+
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> batch.applyTo(table));
+            assertEquals("Operation " + batch.size() + " of the batch failed: Row index " + model.size() + " is out of bounds", e.getMessage());
+            assertEquals(before, render(table), "Round " + round);
+        }
+    }
+
+    @Test
+    void appliesOperationsInOrderOnTheRowsLeftByTheOnesBefore() {
+        Random random = new Random(4);
+        for(int round = 0; round < 300; round++) {
+            Table table = randomTable(random);
+            List<String> before = render(table);
+            Table model = copyOf(table);
+            MutationBatch batch = new MutationBatch();
+            int operations = 1 + random.nextInt(12);
+            for(int n = 0; n < operations; n++) {
+                addRandomOperation(random, batch, model);
+            }
+
+            List<MutationBatch.Applied> applied = batch.applyTo(table);
+            assertEquals(render(model), render(table), "Round " + round);
+
+            batch.undo(table, applied);
+            assertEquals(before, render(table), "Undo of round " + round);
+        }
+    }
+
+    @Test
+    void loggedBatchSurvivesAReloadAndADuplicateKeyChangesNothing() throws IOException {
+        String fileName = "batch-test.txt";
+        File file = FileHandler.getFilePath(fileName);
+        File log = FileHandler.getFilePath(fileName + ".log");
+        new TableGenerator(8, 3).writeTextFile(file, 20, 5);
+        log.delete();
+        try {
+            TableService service = new TableService(fileName);
+            service.enableChangeLog();
+            service.loadTableFromFile();
+
+            String taken = service.getTable().getRow(0).getCells().get(0).getKey();
+            MutationBatch duplicate = new MutationBatch().edit(1, 1, "fresh", null).edit(2, 2, taken, null);
+            List<String> before = render(service.getTable());
+            assertThrows(IllegalArgumentException.class, () -> service.apply(duplicate));
+            assertEquals(before, render(service.getTable()));
+
+            service.apply(new MutationBatch()
+                    .edit(3, 1, "batch-key", "batch-value")
+                    .insertRow(0, Arrays.asList(new Pair("new-key", "new-value")))
+                    .deleteCell(5, 2)
+                    .deleteRow(10));
+            List<String> expected = render(service.getTable());
+
+            // A second service reading the same file and log sees the batch, as after a crash
+            TableService reloaded = new TableService(fileName);
+            reloaded.enableChangeLog();
+            reloaded.loadTableFromFile();
+            assertEquals(expected, render(reloaded.getTable()));
+            reloaded.close();
+            service.close();
+        } finally {
+            file.delete();
+            log.delete();
+        }
+    }
+
+    @Test
+    void loggedBatchThatFailsOnReplayIsDroppedAsAWhole() throws IOException {
+        String fileName = "batch-replay-test.txt";
+        File file = FileHandler.getFilePath(fileName);
+        File log = FileHandler.getFilePath(fileName + ".log");
+        new TableGenerator(8, 3).writeTextFile(file, 20, 5);
+        log.delete();
+        try {
+            TableService service = new TableService(fileName);
+            service.enableChangeLog();
+            service.loadTableFromFile();
+            service.apply(new MutationBatch().edit(0, 0, "batch-key", "batch-value").deleteRow(10));
+
+            // The file is replaced by a shorter table, so the delete of the logged batch fails on replay
+            new TableGenerator(9, 3).writeTextFile(file, 5, 5);
+            TableService fresh = new TableService(fileName);
+            fresh.loadTableFromFile();
+            List<String> expected = render(fresh.getTable());
+
+            TableService reloaded = new TableService(fileName);
+            reloaded.enableChangeLog();
+            reloaded.loadTableFromFile();
+            assertEquals(expected, render(reloaded.getTable()));
+            assertEquals(0, log.length(), "The failed batch is cut from the log");
+            reloaded.close();
+        } finally {
+            file.delete();
+            log.delete();
+        }
+    }
+
+    @Test
+    void editOfAnInsertedCellChecksAndIndexesTheKeyItEndsWith() {
+        TableService service = newService();
+        service.apply(new MutationBatch()
+                .insertRow(0, Arrays.asList(new Pair("AAA", "v")))
+                .edit(0, 0, "BBB", null));
+
+        assertEquals("BBB", service.getTable().getRow(0).getCells().get(0).getKey());
+        assertEquals(null, service.lookupByKey("AAA"));
+        assertEquals(Arrays.asList(0, 0), Arrays.asList(service.lookupByKey("BBB")[0], service.lookupByKey("BBB")[1]));
+
+        // The key is held once, so taking it again fails
+        assertThrows(IllegalArgumentException.class, () -> service.edit(1, 0, "BBB", null));
+    }
+
+    @Test
+    void insertedKeyThatIsAlreadyInTheTableFailsTheBatch() {
+        TableService service = newService();
+        List<String> before = render(service.getTable());
+        String taken = service.getTable().getRow(1).getCells().get(0).getKey();
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> service.apply(new MutationBatch()
+                .insertRow(0, Arrays.asList(new Pair("fresh", "v"), new Pair(taken, "v")))));
+        assertEquals("Key already exists: " + taken, e.getMessage());
+        assertEquals(before, render(service.getTable()));
+        assertEquals(Arrays.asList(1, 0), Arrays.asList(service.lookupByKey(taken)[0], service.lookupByKey(taken)[1]));
+    }
+
+    @Test
+    void changingTheCallersCellsAfterAnInsertDoesNotChangeTheTable() {
+        TableService service = newService();
+        List<Pair> cells = Arrays.asList(new Pair("mine", "v"));
+        service.insertRow(0, cells);
+        cells.get(0).setKey("changed");
+
+        assertEquals("mine", service.getTable().getRow(0).getCells().get(0).getKey());
+        assertEquals(0, service.lookupByKey("mine")[0]);
+    }
+
+    // A service over a small table in memory, saves deferred so no file is written
+    private static TableService newService() {
+        TableService service = new TableService("batch-memory-test.txt");
+        service.setDeferredSaves(true);
+        for(int i = 0; i < 4; i++) {
+            service.insertRow(i, Arrays.asList(new Pair("k" + i + "_0", "v"), new Pair("k" + i + "_1", "v")));
+        }
+        return service;
+    }
+
+    // Add a random operation that is valid on the model and apply it to the model too
+    private static void addRandomOperation(Random random, MutationBatch batch, Table model) {
+        int row = random.nextInt(model.size());
+        List<Pair> cells = model.getRow(row).getCells();
+        switch(random.nextInt(4)) {
+            case 0: {
+                int col = random.nextInt(cells.size());
+                String key = random.nextBoolean() ? "key" + random.nextInt(1000) : null;
+                String value = "value" + random.nextInt(1000);
+                batch.edit(row, col, key, value);
+                model.setCell(row, col, key != null ? key : cells.get(col).getKey(), value);
+                break;
+            }
+            case 1: {
+                int index = random.nextInt(model.size() + 1);
+                List<Pair> inserted = Arrays.asList(new Pair("ins" + random.nextInt(1000), "v"), new Pair("x", "y"));
+                batch.insertRow(index, inserted);
+                model.addRowAt(index, new Row(new ArrayList<>(inserted)));
+                break;
+            }
+            case 2:
+                if(model.size() > 1) {
+                    batch.deleteRow(row);
+                    model.removeRow(row);
+                }
+                break;
+            default:
+                if(cells.size() > 1) {
+                    int col = random.nextInt(cells.size());
+                    batch.deleteCell(row, col);
+                    model.updateCells(row, c -> c.remove(col));
+                }
+                break;
+        }
+    }
+
+    private static Table randomTable(Random random) {
+        Table table = new Table();
+        int rows = 1 + random.nextInt(6);
+        for(int i = 0; i < rows; i++) {
+            List<Pair> cells = new ArrayList<>();
+            int cols = 1 + random.nextInt(4);
+            for(int j = 0; j < cols; j++) {
+                cells.add(new Pair("k" + i + "_" + j, "v" + random.nextInt(100)));
+            }
+            table.addRow(new Row(cells));
+        }
+        return table;
+    }
+
+    private static Table copyOf(Table table) {
+        Table copy = new Table();
+        for(Row row : table.getRows()) {
+            List<Pair> cells = new ArrayList<>();
+            for(Pair cell : row.getCells()) {
+                cells.add(new Pair(cell.getKey(), cell.getValue()));
+            }
+            copy.addRow(new Row(cells));
+        }
+        return copy;
+    }
+
+    private static List<String> render(Table table) {
+        List<String> lines = new ArrayList<>();
+        for(Row row : table.getRows()) {
+            lines.add(row.toString());
+        }
+        return lines;
+    }
+}
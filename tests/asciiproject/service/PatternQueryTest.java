@@ -0,0 +1,101 @@
+package asciiproject.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+class PatternQueryTest {
+    // Regex, a text it matches exactly once, and the literal the prefilter should require (null for none)
+    private static final String[][] ESCAPES = {
+        {"\\x41bc", "Abc", "Abc"},
+        {"\\x{41}bc", "Abc", "Abc"},
+        {"\\u0041bc", "Abc", "Abc"},
+        {"\\0101bc", "Abc", "Abc"},
+        {"\\01bc", "\u0001bc", "\u0001bc"},
+        {"\\cAxy", "\u0001xy", "\u0001xy"},
+        {"(?<n>a)\\k<n>bc", "aabc", "bc"},
+        {"\\N{LATIN CAPITAL LETTER A}bc", "Abc", "Abc"},
+        {"\\p{Lu}bc", "Abc", "bc"},
+        {"\\pLbc", "Abc", "bc"},
+        {"\\P{L}bc", "1bc", "bc"},
+        {"\\tab", "\tab", "\tab"},
+        {"\\.x\\*", ".x*", ".x*"},
+        {"(a)\\1bc", "aabc", "bc"},
+        {"\\bxyz\\b", "xyz", "xyz"},
+        {"\\b{g}xyz", "xyz", "xyz"},
+        {"ab\\d+cd", "ab12cd", "ab"},
+        {"\\x41?bc", "bc", "bc"},
+        {"ab\\x43*", "ab", "ab"},
+        {"\\Qa.b\\E", "a.b", null},
+        {"ab|cd", "ab", null},
+        {"(?i)abc", "ABC", null},
+    };
+
+    @Test
+    void escapesMatchAndRequireTheDecodedLiteral() {
+        for(String[] c : ESCAPES) {
+            PatternQuery query = PatternQuery.compile(c[0], false);
+            assertEquals(1, query.count(c[1]), "count of " + c[0] + " in " + c[1]);
+            assertEquals(c[2], query.getLiteral(), "literal of " + c[0]);
+        }
+    }
+
+    @Test
+    void countsMatchAPlainMatcherOnRandomText() {
+        String[] regexes = {
+            "a", "ab", "a+b", "a*b", "a?bc", "[ab]c", "a.c", "\\x61b", "\\u0061+", "\\0141c", "\\cA",
+            "(ab)+", "(ab)?c", "a{2}", "a{1,3}b", "\\d\\w", "^a", "c$", "\\p{Lower}b", "(?<g>a)\\k<g>",
+            "(a)\\1", "a\\.b", "\\Ba", "[^a]b", "a(?=b)", "(?:ab|ba)c", "\\x{62}\\x63",
+        };
+        Random random = new Random(42);
+        for(String regex : regexes) {
+            PatternQuery query = PatternQuery.compile(regex, false);
+            Pattern plain = Pattern.compile(regex);
+            for(int t = 0; t < 300; t++) {
+                String text = randomText(random, "abc.\u0001 1", 12);
+                assertEquals(countMatches(plain, text), query.count(text), regex + " in \"" + text + "\"");
+                if(query.getLiteral() != null && countMatches(plain, text) > 0) {
+                    assertTrue(text.contains(query.getLiteral()), regex + " literal " + query.getLiteral());
+                }
+            }
+        }
+    }
+
+    @Test
+    void wildcardsMatchTheWholeText() {
+        PatternQuery query = PatternQuery.compile("a*b?c", true);
+        assertEquals("a", query.getLiteral());
+        assertEquals(1, query.count("aXXbYc"));
+        assertEquals(0, query.count("xaXXbYc"));
+        assertEquals(1, PatternQuery.compile("*.x", true).count("a.x"));
+        assertEquals(0, PatternQuery.compile("*.x", true).count("abx"));
+        assertNull(PatternQuery.compile("*?*", true).getLiteral());
+    }
+
+    // Non-empty matches found by Matcher.find, like PatternQuery counts them
+    private static int countMatches(Pattern pattern, String text) {
+        Matcher matcher = pattern.matcher(text);
+        int count = 0;
+        while(matcher.find()) {
+            if(matcher.end() > matcher.start()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static String randomText(Random random, String alphabet, int maxLength) {
+        int length = random.nextInt(maxLength + 1);
+        StringBuilder sb = new StringBuilder(length);
+        for(int i = 0; i < length; i++) {
+            sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return sb.toString();
+    }
+}
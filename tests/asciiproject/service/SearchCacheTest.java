@@ -0,0 +1,126 @@
+package asciiproject.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import asciiproject.model.Pair;
+import asciiproject.model.Row;
+import asciiproject.model.SearchResult;
+import asciiproject.model.Table;
+
+class SearchCacheTest {
+    private static final String[] TERMS = {"a", "ab", "b", "ba", "abc", "c"};
+
+    @Test
+    void patchedResultsMatchAFullSearchAfterRandomChanges() {
+        Random random = new Random(6);
+        Table table = new Table();
+        for(int i = 0; i < 40; i++) {
+            table.addRow(randomRow(random));
+        }
+        SearchCache cache = new SearchCache();
+        SearchCache.RowSearcher rowSearcher = (term, row) -> new SearchTask(table, term, null, row, row + 1, false).invoke();
+
+        for(int step = 0; step < 3000; step++) {
+            // A few changes of every kind the journal records, then a lookup of every term
+            int changes = random.nextInt(4);
+            for(int n = 0; n < changes; n++) {
+                int row = random.nextInt(table.size());
+                switch(random.nextInt(4)) {
+                    case 0:
+                        table.addRowAt(random.nextInt(table.size() + 1), randomRow(random));
+                        break;
+                    case 1:
+                        if(table.size() > 1) {
+                            table.removeRow(row);
+                        }
+                        break;
+                    case 2:
+                        table.setRow(row, randomRow(random));
+                        break;
+                    default: {
+                        int col = random.nextInt(table.getRow(row).getCells().size());
+                        table.setCell(row, col, randomText(random), randomText(random));
+                        break;
+                    }
+                }
+            }
+
+            for(String term : TERMS) {
+                List<SearchResult.Hit> expected = new SearchTask(table, term, null, 0, table.size(), false).invoke();
+                SearchResult cached = cache.get(term, table, rowSearcher);
+                if(cached == null) {
+                    cache.put(new SearchResult(term, expected), table.getVersion());
+                } else {
+                    assertHitsEqual(expected, cached.getHits(), "Step " + step + ", term " + term);
+                }
+            }
+        }
+    }
+
+    @Test
+    void doesNotCacheLargeResultsAndEvictsByHits() {
+        Table table = new Table();
+        table.addRow(new Row(new ArrayList<>(List.of(new Pair("k", "v")))));
+        SearchCache cache = new SearchCache();
+        SearchCache.RowSearcher rowSearcher = (term, row) -> new ArrayList<>();
+
+        cache.put(new SearchResult("large", hits(SearchCache.MAX_ENTRY_HITS + 1)), table.getVersion());
+        assertNull(cache.get("large", table, rowSearcher));
+
+        // Entries of MAX_ENTRY_HITS hits each: one more than fits pushes out the least recently used
+        int fit = SearchCache.MAX_CACHED_HITS / SearchCache.MAX_ENTRY_HITS;
+        for(int t = 0; t < fit; t++) {
+            cache.put(new SearchResult("term" + t, hits(SearchCache.MAX_ENTRY_HITS)), table.getVersion());
+        }
+        assertNotNull(cache.get("term0", table, rowSearcher));
+        cache.put(new SearchResult("one more", hits(SearchCache.MAX_ENTRY_HITS)), table.getVersion());
+        assertNotNull(cache.get("term0", table, rowSearcher), "Recently used");
+        assertNull(cache.get("term1", table, rowSearcher), "Least recently used");
+        assertNotNull(cache.get("one more", table, rowSearcher));
+    }
+
+    private static List<SearchResult.Hit> hits(int count) {
+        List<SearchResult.Hit> hits = new ArrayList<>(count);
+        for(int i = 0; i < count; i++) {
+            hits.add(new SearchResult.Hit(0, 0, 1, 0));
+        }
+        return hits;
+    }
+
+    private static Row randomRow(Random random) {
+        List<Pair> cells = new ArrayList<>();
+        int cols = 1 + random.nextInt(4);
+        for(int j = 0; j < cols; j++) {
+            cells.add(new Pair(randomText(random), randomText(random)));
+        }
+        return new Row(cells);
+    }
+
+    // Short text over a small alphabet, so terms hit often
+    private static String randomText(Random random) {
+        StringBuilder sb = new StringBuilder();
+        int length = 1 + random.nextInt(4);
+        for(int i = 0; i < length; i++) {
+            sb.append("abcx".charAt(random.nextInt(4)));
+        }
+        return sb.toString();
+    }
+
+    private static void assertHitsEqual(List<SearchResult.Hit> expected, List<SearchResult.Hit> actual, String message) {
+        assertEquals(expected.size(), actual.size(), message);
+        for(int h = 0; h < expected.size(); h++) {
+            SearchResult.Hit e = expected.get(h);
+            SearchResult.Hit a = actual.get(h);
+            assertEquals(e.getRow() + "," + e.getCol() + "," + e.getKeyCount() + "," + e.getValueCount(),
+                    a.getRow() + "," + a.getCol() + "," + a.getKeyCount() + "," + a.getValueCount(), message);
+        }
+    }
+}
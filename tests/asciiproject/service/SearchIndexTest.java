@@ -0,0 +1,183 @@
+package asciiproject.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import asciiproject.model.Pair;
+import asciiproject.model.Row;
+import asciiproject.model.SearchResult;
+import asciiproject.model.Table;
+
+class SearchIndexTest {
+    private static final String ALPHABET = "abcé";
+
+    @Test
+    void listsTheCellsHoldingAGram() {
+        Table table = new Table();
+        table.addRow(new Row(new ArrayList<>(Arrays.asList(new Pair("abc", "x"), new Pair("zz", "zz"), new Pair("q", "xab")))));
+        table.addRow(new Row(new ArrayList<>(Arrays.asList(new Pair("q", "q")))));
+        SearchIndex index = new SearchIndex();
+        index.rebuild(table);
+
+        Map<Row, int[]> cells = index.candidates("ab");
+        assertEquals(1, cells.size());
+        assertArrayEquals(new int[] {0, 2}, cells.get(table.getRow(0)));
+        assertArrayEquals(new int[] {0}, index.candidates("abc").get(table.getRow(0)));
+        assertTrue(index.candidates("xyz").isEmpty());
+        assertNull(index.candidates("a"), "Single characters are not indexed");
+        assertNull(index.candidates(Arrays.asList("ab", "a")));
+    }
+
+    @Test
+    void candidatesCoverEveryMatchAfterRandomChanges() {
+        Random random = new Random(11);
+        Table table = new Table();
+        for(int i = 0; i < 40; i++) {
+            table.addRow(new Row(randomCells(random)));
+        }
+        SearchIndex index = new SearchIndex();
+        index.rebuild(table);
+
+        for(int step = 0; step < 3000; step++) {
+            int op = random.nextInt(5);
+            int row = random.nextInt(table.size());
+            Row stored = table.getRow(row);
+            if(op == 0) {
+                int col = random.nextInt(stored.getCells().size());
+                Pair cell = stored.getCells().get(col);
+                String key = randomText(random, 1 + random.nextInt(5));
+                String value = randomText(random, 1 + random.nextInt(5));
+                index.updateCell(stored, col, cell.getKey(), cell.getValue(), key, value);
+                table.setCell(row, col, key, value);
+            } else if(op == 1 && stored.getCells().size() > 1) {
+                List<Pair> before = new ArrayList<>(stored.getCells());
+                int col = random.nextInt(before.size());
+                table.updateCells(row, cells -> cells.remove(col));
+                index.removeCells(stored, before);
+                index.addRow(stored);
+            } else if(op == 2) {
+                Row added = new Row(randomCells(random));
+                table.addRowAt(row, added);
+                index.addRow(added);
+            } else if(op == 3 && table.size() > 1) {
+                index.removeRow(table.removeRow(row));
+            } else if(op == 4) {
+                List<Pair> before = new ArrayList<>(stored.getCells());
+                table.updateCells(row, cells -> RowSorter.sort(cells, random.nextBoolean() ? "asc" : "desc"));
+                index.removeCells(stored, before);
+                index.addRow(stored);
+            }
+
+            if(step % 100 == 0) {
+                for(int t = 0; t < 20; t++) {
+                    assertCovers(table, index, randomText(random, 2 + random.nextInt(4)));
+                }
+            }
+        }
+
+        // The index kept up to date matches one built from scratch
+        SearchIndex rebuilt = new SearchIndex();
+        rebuilt.rebuild(table);
+        for(int t = 0; t < 200; t++) {
+            String term = randomText(random, 2 + random.nextInt(2));
+            assertEquals(describe(rebuilt.candidates(term)), describe(index.candidates(term)), term);
+        }
+    }
+
+    @Test
+    void searchReadsOnlyFewCandidateRowsAndFindsTheSameHits() {
+        Random random = new Random(12);
+        Table table = new Table();
+        for(int i = 0; i < 5000; i++) {
+            table.addRow(new Row(new ArrayList<>(Arrays.asList(new Pair("k" + i, "filler"), new Pair("x", "y")))));
+        }
+        SearchIndex index = new SearchIndex();
+        index.rebuild(table);
+
+        // Few matching rows inserted anywhere, so they sit in different blocks and shift the rows after them
+        for(int n = 0; n < 40; n++) {
+            Row added = new Row(new ArrayList<>(Arrays.asList(new Pair("a", "b"), new Pair("needle" + n, "y needle"))));
+            table.addRowAt(random.nextInt(table.size() + 1), added);
+            index.addRow(added);
+        }
+
+        Map<Row, int[]> candidates = index.candidates("needle");
+        assertNotNull(SearchTask.candidatePositions(table, candidates, 0, table.size()), "Candidates are few enough to look up");
+        List<SearchResult.Hit> expected = new SearchTask(table, "needle", null, 0, table.size(), false).invoke();
+        assertEquals(40, expected.size());
+        for(boolean parallel : new boolean[] {false, true}) {
+            List<SearchResult.Hit> hits = new SearchTask(table, "needle", candidates, 0, table.size(), parallel).invoke();
+            assertEquals(describeHits(expected), describeHits(hits), "Parallel: " + parallel);
+        }
+    }
+
+    // Every cell whose key or value contains the term is a candidate; terms of 2-3 characters list exactly those cells
+    private static void assertCovers(Table table, SearchIndex index, String term) {
+        Map<Row, int[]> candidates = index.candidates(term);
+        assertNotNull(candidates);
+        for(int i = 0; i < table.size(); i++) {
+            Row row = table.getRow(i);
+            List<Integer> expected = new ArrayList<>();
+            for(int j = 0; j < row.getCells().size(); j++) {
+                Pair cell = row.getCells().get(j);
+                if(cell.getKey().contains(term) || cell.getValue().contains(term)) {
+                    expected.add(j);
+                }
+            }
+            int[] cols = candidates.get(row);
+            List<Integer> listed = new ArrayList<>();
+            if(cols != null) {
+                Arrays.stream(cols).forEach(listed::add);
+            }
+            assertTrue(listed.containsAll(expected), "Row " + i + " misses matches of " + term);
+            if(term.length() <= 3) {
+                assertEquals(expected, listed, "Row " + i + " for " + term);
+            }
+        }
+    }
+
+    // Candidates as comparable text, rows by identity hash and columns in order
+    private static List<String> describe(Map<Row, int[]> candidates) {
+        List<String> entries = new ArrayList<>();
+        candidates.forEach((row, cols) -> entries.add(System.identityHashCode(row) + Arrays.toString(cols)));
+        Collections.sort(entries);
+        return entries;
+    }
+
+    private static List<String> describeHits(List<SearchResult.Hit> hits) {
+        List<String> described = new ArrayList<>();
+        for(SearchResult.Hit hit : hits) {
+            described.add(hit.getRow() + "," + hit.getCol() + "," + hit.getKeyCount() + "," + hit.getValueCount());
+        }
+        return described;
+    }
+
+    private static List<Pair> randomCells(Random random) {
+        List<Pair> cells = new ArrayList<>();
+        int count = 1 + random.nextInt(8);
+        for(int j = 0; j < count; j++) {
+            cells.add(new Pair(randomText(random, 1 + random.nextInt(5)), randomText(random, 1 + random.nextInt(5))));
+        }
+        return cells;
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder();
+        for(int i = 0; i < length; i++) {
+            text.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return text.toString();
+    }
+}
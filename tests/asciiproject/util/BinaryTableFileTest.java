@@ -0,0 +1,88 @@
+package asciiproject.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import asciiproject.model.Pair;
+import asciiproject.model.Row;
+
+class BinaryTableFileTest {
+    private static final int ROWS = 5;
+
+    @TempDir
+    File folder;
+
+    @Test
+    void readsRowsThroughTheFooter() throws IOException {
+        File file = writeRows();
+        try (BinaryTableFile.Reader reader = BinaryTableFile.open(file)) {
+            assertEquals(ROWS, reader.size());
+            for(int i = 0; i < ROWS; i++) {
+                assertEquals("k" + i, reader.readRow(i).getCells().get(0).getKey());
+            }
+        }
+    }
+
+    @Test
+    void rejectsARowCountThatDoesNotMatchTheFooter() throws IOException {
+        // A row count whose footer would not fit an int of bytes, and one just off by one
+        for(int rowCount : new int[] {Integer.MAX_VALUE, ROWS + 1, -1}) {
+            File file = writeRows();
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.seek(8);
+                raf.writeInt(rowCount);
+            }
+            assertThrows(IOException.class, () -> BinaryTableFile.open(file).close(), "Row count " + rowCount);
+        }
+    }
+
+    @Test
+    void rejectsAFooterStartOrRowOffsetOutOfPlace() throws IOException {
+        File file = writeRows();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(raf.length() - 8);
+            raf.writeLong(raf.length() - 16);
+        }
+        assertThrows(IOException.class, () -> BinaryTableFile.open(file).close());
+
+        File swapped = writeRows();
+        try (RandomAccessFile raf = new RandomAccessFile(swapped, "rw")) {
+            raf.seek(raf.length() - 8);
+            long footerStart = raf.readLong();
+            raf.seek(footerStart);
+            raf.writeLong(footerStart + 1); // First row starting after the footer start
+        }
+        assertThrows(IOException.class, () -> BinaryTableFile.open(swapped).close());
+    }
+
+    @Test
+    void rejectsAFileShorterThanHeaderAndFooter() throws IOException {
+        File file = writeRows();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(14);
+        }
+        assertThrows(IOException.class, () -> BinaryTableFile.open(file).close());
+    }
+
+    // Rows [k<i>, v<i>] for i in 0..ROWS-1
+    private File writeRows() throws IOException {
+        List<Row> rows = new ArrayList<>();
+        for(int i = 0; i < ROWS; i++) {
+            List<Pair> cells = new ArrayList<>();
+            cells.add(new Pair("k" + i, "v" + i));
+            rows.add(new Row(cells));
+        }
+        File file = new File(folder, "rows.tbl");
+        BinaryTableFile.write(file, rows);
+        return file;
+    }
+}